@@ -5,11 +5,15 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EntityScan("com.revature.models") //This tells Spring Boot to look in the models package for DB entities
-@ComponentScan("com.revature") //This tells Spring Boot to look in com.revature for Beans (stereotype annotations)
+//This tells Spring Boot where to look for Beans (stereotype annotations)
+//Only the packages that actually have beans - models + daos are covered by @EntityScan/@EnableJpaRepositories
+@ComponentScan({"com.revature.controllers", "com.revature.services", "com.revature.aspects", "com.revature.config"})
 @EnableJpaRepositories("com.revature.daos") //This tells Spring Boot to look in the daos package for JPARepositories
+@EnableScheduling //This turns on @Scheduled methods (like the PendingTotals reconciliation job)
 
 public class P1Application {
 
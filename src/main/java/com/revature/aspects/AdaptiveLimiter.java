@@ -0,0 +1,137 @@
+package com.revature.aspects;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/*An ADAPTIVE concurrency limit - how many requests may be in progress at once, learned from their latency
+
+ There's no fixed "right" number: it depends on how fast the DB is right now. So we watch the latency instead:
+    -a long-term average latency ("what normal looks like") and the latency of the last window
+    -if the last window is slower than normal, requests are queueing somewhere (usually for a DB connection),
+     so the limit shrinks by the same ratio (gradient = normal / now, between 0.5 and 1)
+    -otherwise it creeps up by sqrt(limit) per window, to find out if there's more room
+    -a failed request (5xx/exception) cuts the limit by 10% right away
+ The limit only grows while we actually use at least half of it (an idle app proves nothing about capacity).
+ This is the "gradient" algorithm from Netflix's concurrency-limits library, trimmed down.
+
+ tryAcquire() before a request, onSample() after it - a request that can't get in should be rejected, not queued */
+public class AdaptiveLimiter {
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double criticalHeadroom; //critical requests may go this far (0.5 = 50%) past the limit
+    private final double rttTolerance;     //how much slower than normal still counts as "not queueing"
+    private final double smoothing;        //how much of each new estimate the limit takes on (0..1)
+    private final long windowNanos;
+    private final LongSupplier clock;
+
+    private volatile double limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger(); //peak during the current window
+    private final LongAdder rejected = new LongAdder();
+
+    //the current window + the long-term average (guarded by "this")
+    private long windowStart;
+    private long windowSumNanos;
+    private int windowCount;
+    private double longRttNanos;
+
+    public AdaptiveLimiter(String name, int initialLimit, int minLimit, int maxLimit, double criticalHeadroom,
+                           double rttTolerance, double smoothing, long windowNanos, LongSupplier clock) {
+        if (minLimit < 1 || minLimit > maxLimit) {
+            throw new IllegalArgumentException(name + ": limits must be 1 <= min <= max");
+        }
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.criticalHeadroom = criticalHeadroom;
+        this.rttTolerance = rttTolerance;
+        this.smoothing = smoothing;
+        this.windowNanos = windowNanos;
+        this.clock = clock;
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+        this.windowStart = clock.getAsLong();
+    }
+
+    //true = go ahead (and call onSample when done), false = over the limit, reject the request
+    public boolean tryAcquire(boolean critical) {
+        double current = limit;
+        int cap = (int) (critical ? current * (1 + criticalHeadroom) : current);
+        while (true) {
+            int n = inFlight.get();
+            if (n >= cap) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(n, n + 1)) {
+                maxInFlight.accumulateAndGet(n + 1, Math::max);
+                return true;
+            }
+        }
+    }
+
+    //A request that tryAcquire() let in never ran after all (ex: another limiter turned it away) - no sample
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    //A request that tryAcquire() let in has finished. dropped = it failed (timed out, 5xx...)
+    public void onSample(long rttNanos, boolean dropped) {
+        inFlight.decrementAndGet();
+        synchronized (this) {
+            if (dropped) {
+                limit = Math.max(minLimit, limit * 0.9);
+                return;
+            }
+            windowSumNanos += rttNanos;
+            windowCount++;
+            long now = clock.getAsLong();
+            //wait for a few samples too, so one odd request doesn't move the limit
+            if (now - windowStart >= windowNanos && windowCount >= 10) {
+                update((double) windowSumNanos / windowCount);
+                windowStart = now;
+                windowSumNanos = 0;
+                windowCount = 0;
+                maxInFlight.set(inFlight.get());
+            }
+        }
+    }
+
+    private void update(double shortRtt) {
+        if (longRttNanos == 0) {
+            longRttNanos = shortRtt;
+        } else {
+            longRttNanos = longRttNanos * 0.95 + shortRtt * 0.05;
+            //after a slow spell, let "normal" come back down quickly instead of over ~20 windows
+            if (longRttNanos / shortRtt > 2) {
+                longRttNanos *= 0.9;
+            }
+        }
+
+        double current = limit;
+        double gradient = Math.clamp(rttTolerance * longRttNanos / shortRtt, 0.5, 1.0);
+        double estimate = current * gradient + Math.sqrt(current);
+        if (gradient == 1.0 && maxInFlight.get() < current / 2) {
+            return; //not using the limit we have, so there's nothing to learn about a bigger one
+        }
+        limit = Math.clamp(current * (1 - smoothing) + estimate * smoothing, minLimit, maxLimit);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
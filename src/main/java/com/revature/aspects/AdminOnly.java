@@ -14,6 +14,6 @@ public @interface AdminOnly {
 
     //No need for any fields/methods
 
-    //Our AuthAspect will check for this annotation before allowing HTTP requests
+    //Our AuthInterceptor will check for this annotation before allowing HTTP requests
 
 }
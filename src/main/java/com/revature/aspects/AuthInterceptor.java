@@ -0,0 +1,122 @@
+package com.revature.aspects;
+
+import com.revature.services.TokenService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+/*Checks that the caller is allowed to use a controller method, BEFORE the method runs (replaces the old AuthAspect)
+
+ At startup, we look at every controller method ONCE and write down what it needs, as a bitset of roles:
+    -@LoginRequired  -> LOGGED_IN
+    -@AdminOnly      -> LOGGED_IN | ADMIN
+    -neither         -> nothing (anyone can call it)
+ Then each request is just a map lookup + comparing bits - no pointcut matching, no String.equals on roles.
+
+ If the check fails we send back 401 (not logged in) or 403 (logged in, but not allowed) ourselves,
+ so the caller gets a real status code instead of an exception escaping the controller */
+@Component
+public class AuthInterceptor implements HandlerInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthInterceptor.class);
+
+    //ROLE BITS - each role is one bit, so "what you have" vs "what you need" is one AND
+    public static final int LOGGED_IN = 1;
+    public static final int ADMIN = 1 << 1;
+
+    private final TokenService tokenService;
+    private final ApplicationContext context;
+
+    //controller method -> the role bits it needs (filled once at startup, never changed after)
+    private volatile Map<Method, Integer> requirements = Map.of();
+
+    @Autowired
+    public AuthInterceptor(TokenService tokenService, ApplicationContext context) {
+        this.tokenService = tokenService;
+        this.context = context;
+    }
+
+    //Build the table once every controller has been mapped
+    @EventListener
+    public void buildTable(ContextRefreshedEvent event) {
+        //only for our own context (not child contexts), and only if it's a web app
+        if (event.getApplicationContext() != context || !context.containsBean("requestMappingHandlerMapping")) {
+            return;
+        }
+        RequestMappingHandlerMapping mapping = context.getBean("requestMappingHandlerMapping", RequestMappingHandlerMapping.class);
+        Map<Method, Integer> table = new HashMap<>();
+        for (HandlerMethod hm : mapping.getHandlerMethods().values()) {
+            int required = requirementsOf(hm);
+            if (required != 0) {
+                table.put(hm.getMethod(), required);
+            }
+        }
+        requirements = Map.copyOf(table);
+        log.info("Authorization table built: {} protected handler methods", table.size());
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!(handler instanceof HandlerMethod hm)) {
+            return true; //static resources, CORS preflights, etc
+        }
+        int required = requirements.getOrDefault(hm.getMethod(), 0);
+        if (required == 0) {
+            return true;
+        }
+
+        TokenService.Claims claims = tokenService.fromRequest(request);
+        int granted = rolesOf(claims);
+        if ((granted & required) == required) {
+            return true;
+        }
+
+        if (claims == null) {
+            deny(response, 401, "You must be logged in to do this!");
+        } else {
+            deny(response, 403, "You must be an admin to do this!");
+        }
+        return false;
+    }
+
+    //what a caller HAS
+    public static int rolesOf(TokenService.Claims claims) {
+        if (claims == null) {
+            return 0;
+        }
+        return claims.isAdmin() ? LOGGED_IN | ADMIN : LOGGED_IN;
+    }
+
+    //what a handler method NEEDS (the annotation can be on the method or its controller class)
+    public static int requirementsOf(HandlerMethod hm) {
+        int required = 0;
+        if (hm.hasMethodAnnotation(LoginRequired.class)
+                || AnnotatedElementUtils.hasAnnotation(hm.getBeanType(), LoginRequired.class)) {
+            required |= LOGGED_IN;
+        }
+        if (hm.hasMethodAnnotation(AdminOnly.class)) {
+            required |= LOGGED_IN | ADMIN;
+        }
+        return required;
+    }
+
+    private static void deny(HttpServletResponse response, int status, String message) throws Exception {
+        response.setStatus(status);
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write(message);
+    }
+}
@@ -0,0 +1,175 @@
+package com.revature.aspects;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.lang.reflect.Method;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/*LOAD SHEDDING - turns requests away with 503 SERVICE UNAVAILABLE when too many are already in progress
+
+ When the DB slows down, requests pile up waiting for it, and every endpoint gets slow together.
+ Rejecting the extra ones straight away (with a Retry-After) keeps the ones we DO accept fast.
+
+ Each class of endpoint has its own AdaptiveLimiter (the limit adjusts itself to the latency it sees),
+ and its own settings - limits.<class>.initial-limit / min-limit / max-limit:
+    -writes       everything that isn't a GET (login, submissions, resolving...)
+    -admin-lists  @AdminOnly GETs (the big listings)
+    -user-reads   every other GET
+ On top of those, every request also needs a slot in one shared "total" limiter (limits.total.*) - they all
+ wait on the same DB in the end, so a flood of listings shouldn't leave no room for anything else.
+
+ @Critical methods (login, resolving a reimbursement) may go limits.critical-headroom past BOTH limits.
+ So the top critical-headroom of the total is reserved for them: once the listings, reads and ordinary writes
+ fill the total between them, those all get 503s, and the critical ones still get in.
+
+ Like the AuthInterceptor, we work out which limiter each controller method uses ONCE, at startup */
+@Component
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(ConcurrencyLimitInterceptor.class);
+
+    private static final String STARTED = ConcurrencyLimitInterceptor.class.getName() + ".started";
+
+    public enum EndpointClass {
+        WRITES("writes", 20),
+        ADMIN_LISTS("admin-lists", 10),
+        USER_READS("user-reads", 20);
+
+        private final String key;
+        private final int defaultLimit;
+
+        EndpointClass(String key, int defaultLimit) {
+            this.key = key;
+            this.defaultLimit = defaultLimit;
+        }
+
+        public String key() {
+            return key;
+        }
+    }
+
+    //which limiter a controller method uses, and whether it's @Critical
+    private record Route(AdaptiveLimiter limiter, boolean critical) {
+    }
+
+    private final boolean enabled;
+    private final String retryAfterSeconds;
+    private final Map<EndpointClass, AdaptiveLimiter> limiters = new EnumMap<>(EndpointClass.class);
+    private final AdaptiveLimiter total; //shared by every class
+    private final ApplicationContext context;
+
+    //controller method -> Route (filled once at startup, never changed after)
+    private volatile Map<Method, Route> routes = Map.of();
+
+    @Autowired
+    public ConcurrencyLimitInterceptor(Environment env, ApplicationContext context) {
+        this.context = context;
+        this.enabled = env.getProperty("limits.enabled", Boolean.class, true);
+        this.retryAfterSeconds = env.getProperty("limits.retry-after-seconds", "1");
+        double headroom = env.getProperty("limits.critical-headroom", Double.class, 0.5);
+        double tolerance = env.getProperty("limits.rtt-tolerance", Double.class, 1.5);
+        double smoothing = env.getProperty("limits.smoothing", Double.class, 0.2);
+        long windowNanos = env.getProperty("limits.window-ms", Long.class, 1000L) * 1_000_000;
+        for (EndpointClass c : EndpointClass.values()) {
+            limiters.put(c, limiterOf(env, c.key, c.defaultLimit, headroom, tolerance, smoothing, windowNanos));
+        }
+        this.total = limiterOf(env, "total", 40, headroom, tolerance, smoothing, windowNanos);
+    }
+
+    private static AdaptiveLimiter limiterOf(Environment env, String key, int defaultLimit, double headroom,
+                                             double tolerance, double smoothing, long windowNanos) {
+        String prefix = "limits." + key + ".";
+        int initial = env.getProperty(prefix + "initial-limit", Integer.class, defaultLimit);
+        return new AdaptiveLimiter(key, initial,
+                env.getProperty(prefix + "min-limit", Integer.class, Math.max(1, initial / 5)),
+                env.getProperty(prefix + "max-limit", Integer.class, initial * 10),
+                headroom, tolerance, smoothing, windowNanos, System::nanoTime);
+    }
+
+    @EventListener
+    public void buildTable(ContextRefreshedEvent event) {
+        //only for our own context (not child contexts), and only if it's a web app
+        if (event.getApplicationContext() != context || !context.containsBean("requestMappingHandlerMapping")) {
+            return;
+        }
+        RequestMappingHandlerMapping mapping = context.getBean("requestMappingHandlerMapping", RequestMappingHandlerMapping.class);
+        Map<Method, Route> table = new HashMap<>();
+        mapping.getHandlerMethods().forEach((info, hm) ->
+                table.put(hm.getMethod(), new Route(limiters.get(classOf(info, hm)), hm.hasMethodAnnotation(Critical.class))));
+        routes = Map.copyOf(table);
+        log.info("Concurrency limits mapped for {} handler methods", table.size());
+    }
+
+    static EndpointClass classOf(RequestMappingInfo info, HandlerMethod hm) {
+        Set<RequestMethod> methods = info.getMethodsCondition().getMethods();
+        if (!methods.equals(Set.of(RequestMethod.GET))) {
+            return EndpointClass.WRITES;
+        }
+        return hm.hasMethodAnnotation(AdminOnly.class) ? EndpointClass.ADMIN_LISTS : EndpointClass.USER_READS;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!enabled || !(handler instanceof HandlerMethod hm)) {
+            return true;
+        }
+        Route route = routes.get(hm.getMethod());
+        if (route == null) {
+            return true;
+        }
+        if (!route.limiter().tryAcquire(route.critical())) {
+            return busy(response);
+        }
+        if (!total.tryAcquire(route.critical())) {
+            route.limiter().release();
+            return busy(response);
+        }
+        request.setAttribute(STARTED, System.nanoTime());
+        return true;
+    }
+
+    private boolean busy(HttpServletResponse response) throws Exception {
+        response.setStatus(503);
+        response.setHeader("Retry-After", retryAfterSeconds);
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write("The server is busy, please try again shortly");
+        return false;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(STARTED) instanceof Long started && handler instanceof HandlerMethod hm) {
+            boolean dropped = ex != null || response.getStatus() >= 500;
+            long rtt = System.nanoTime() - started;
+            routes.get(hm.getMethod()).limiter().onSample(rtt, dropped);
+            total.onSample(rtt, dropped);
+        }
+    }
+
+    //for the metrics (check MetricsConfig) and the tests
+    public AdaptiveLimiter limiter(EndpointClass endpointClass) {
+        return limiters.get(endpointClass);
+    }
+
+    //the one every request goes through
+    public AdaptiveLimiter total() {
+        return total;
+    }
+}
@@ -0,0 +1,16 @@
+package com.revature.aspects;
+
+//Another custom annotation - for controller methods that must keep working while the app is overloaded
+//(ex: logging in, resolving a reimbursement). The ConcurrencyLimitInterceptor lets them past its limits a little -
+//their own class's, and the total all the classes share. So when the app is full (of listings, reads, other writes...)
+//the others get turned away first, and these still get in
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Critical {
+}
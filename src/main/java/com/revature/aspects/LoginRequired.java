@@ -0,0 +1,19 @@
+package com.revature.aspects;
+
+//Another custom annotation! Put it on any controller method (or whole controller) that needs a logged in user
+//(@AdminOnly methods don't need it - being an admin already means being logged in)
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Target({ElementType.METHOD, ElementType.TYPE}) //This annotation can go on methods or classes
+@Retention(RetentionPolicy.RUNTIME) //The annotation will be available at runtime
+public @interface LoginRequired {
+
+    //No need for any fields/methods
+
+    //Our AuthInterceptor will check for this annotation before allowing HTTP requests
+
+}
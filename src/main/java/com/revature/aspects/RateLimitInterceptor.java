@@ -0,0 +1,179 @@
+package com.revature.aspects;
+
+import com.revature.services.TokenService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/*RATE LIMITING - each caller gets so many requests a minute to a @RateLimited method, then 429 TOO MANY REQUESTS
+
+ The limit is per caller AND per limit name, so someone hammering the search doesn't use up their submissions.
+ A logged in caller is counted by their user id, anyone else by their IP address.
+ How much each role gets (ratelimit.<name>.<role>.capacity = the burst, .per-minute = the steady rate)
+ comes from application.properties. The roles are "anonymous", "employee" and "admin".
+
+ @RateLimited(perItem = true) methods are charged one token per item instead (a batch of 5000 claims isn't one request's
+ worth of work). Their body isn't read yet when we run, so they call consume() themselves once they know the count.
+
+ The counting itself is in TokenBuckets (lock-free, bounded memory).
+ Like the AuthInterceptor, each method's limits are looked up ONCE, at startup */
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimitInterceptor.class);
+
+    static final String[] ROLES = {"anonymous", "employee", "admin"};
+
+    //one @RateLimited name's limits, for each role (in ROLES order)
+    record Limits(int id, String name, int[] capacity, int[] perMinute) {
+    }
+
+    private final boolean enabled;
+    private final TokenService tokenService;
+    private final ApplicationContext context;
+    private final Environment env;
+    private final TokenBuckets buckets;
+    private final LongAdder rejected = new LongAdder();
+
+    //controller method -> its limits (filled once at startup, never changed after)
+    private volatile Map<Method, Limits> table = Map.of();
+    //limit name -> its limits (every name, including the perItem ones)
+    private volatile Map<String, Limits> names = Map.of();
+
+    @Autowired
+    public RateLimitInterceptor(TokenService tokenService, ApplicationContext context, Environment env) {
+        this.tokenService = tokenService;
+        this.context = context;
+        this.env = env;
+        this.enabled = env.getProperty("ratelimit.enabled", Boolean.class, true);
+        this.buckets = new TokenBuckets(env.getProperty("ratelimit.stripes", Integer.class, 64),
+                env.getProperty("ratelimit.max-keys", Integer.class, 100_000), System::currentTimeMillis);
+    }
+
+    @EventListener
+    public void buildTable(ContextRefreshedEvent event) {
+        //only for our own context (not child contexts), and only if it's a web app
+        if (event.getApplicationContext() != context || !context.containsBean("requestMappingHandlerMapping")) {
+            return;
+        }
+        RequestMappingHandlerMapping mapping = context.getBean("requestMappingHandlerMapping", RequestMappingHandlerMapping.class);
+        Map<String, Limits> byName = new LinkedHashMap<>();
+        Map<Method, Limits> methods = new HashMap<>();
+        for (HandlerMethod hm : mapping.getHandlerMethods().values()) {
+            RateLimited annotation = hm.getMethodAnnotation(RateLimited.class);
+            if (annotation != null) {
+                Limits limits = byName.computeIfAbsent(annotation.value(), name -> limitsOf(byName.size(), name));
+                if (!annotation.perItem()) {
+                    methods.put(hm.getMethod(), limits);
+                }
+            }
+        }
+        table = Map.copyOf(methods);
+        names = Map.copyOf(byName);
+        log.info("Rate limits {} on {} handler methods", byName.keySet(), methods.size());
+    }
+
+    private Limits limitsOf(int id, String name) {
+        if (id > 255) {
+            throw new IllegalStateException("Too many @RateLimited names");
+        }
+        int[] capacity = new int[ROLES.length];
+        int[] perMinute = new int[ROLES.length];
+        for (int i = 0; i < ROLES.length; i++) {
+            String prefix = "ratelimit." + name + "." + ROLES[i] + ".";
+            capacity[i] = env.getProperty(prefix + "capacity", Integer.class, 20);
+            perMinute[i] = env.getProperty(prefix + "per-minute", Integer.class, 60);
+        }
+        return new Limits(id, name, capacity, perMinute);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!enabled || !(handler instanceof HandlerMethod hm)) {
+            return true;
+        }
+        Limits limits = table.get(hm.getMethod());
+        if (limits == null) {
+            return true;
+        }
+
+        long waitMs = take(request, limits, 1);
+        if (waitMs == 0) {
+            return true;
+        }
+        response.setStatus(429);
+        response.setHeader("Retry-After", Long.toString((waitMs + 999) / 1000));
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write("Too many requests, please slow down");
+        return false;
+    }
+
+    /*For @RateLimited(perItem = true) methods: charge this request "items" tokens of the named limit
+     Returns 0 if the caller had them, otherwise how many ms until they will (send a 429 with that as Retry-After).
+     More items than the caller's whole burst could never go through, that's an IllegalArgumentException */
+    public long consume(HttpServletRequest request, String name, int items) {
+        Limits limits = names.get(name);
+        if (!enabled || limits == null || items < 1) {
+            return 0;
+        }
+        return take(request, limits, items);
+    }
+
+    private long take(HttpServletRequest request, Limits limits, int tokens) {
+        TokenService.Claims claims = tokenService.fromRequest(request);
+        int role;
+        long caller;
+        if (claims == null) {
+            role = 0;
+            //bit 32 keeps IP hashes apart from user ids
+            caller = (1L << 32) | (request.getRemoteAddr().hashCode() & 0xFFFFFFFFL);
+        } else {
+            role = claims.isAdmin() ? 2 : 1;
+            caller = claims.userId() & 0xFFFFFFFFL;
+        }
+
+        int capacity = limits.capacity()[role];
+        if (tokens > capacity) {
+            throw new IllegalArgumentException("Can't send more than " + capacity + " at once (" + limits.name() + " limit)");
+        }
+        long waitMs = buckets.tryConsume((caller << 8) | limits.id(), tokens, capacity, limits.perMinute()[role]);
+        if (waitMs > 0) {
+            rejected.increment();
+        }
+        return waitMs;
+    }
+
+    //Buckets that filled back up are the same as no bucket - drop them, so quiet callers don't cost memory
+    @Scheduled(fixedDelayString = "${ratelimit.idle-sweep-ms:60000}")
+    public void evictIdle() {
+        int evicted = buckets.evictIdle();
+        if (evicted > 0) {
+            log.debug("Evicted {} idle rate limit buckets", evicted);
+        }
+    }
+
+    public int trackedKeys() {
+        return buckets.size();
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,22 @@
+package com.revature.aspects;
+
+//Another custom annotation - for controller methods that each caller may only hit so often
+//value = the name of the limit (its settings are ratelimit.<name>.<role>.capacity / per-minute)
+//Our RateLimitInterceptor checks it, and sends back 429 TOO MANY REQUESTS when a caller is over their limit
+//perItem = the request carries many items (ex: a batch of claims), and costs one token per item, not one per request.
+//The interceptor can't count them before the body is read, so the method charges itself (RateLimitInterceptor.consume)
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimited {
+
+    String value();
+
+    boolean perItem() default false;
+
+}
@@ -0,0 +1,191 @@
+package com.revature.aspects;
+
+import java.io.Serial;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/*TOKEN BUCKETS for rate limiting - one bucket per key (ex: user + endpoint)
+
+ A bucket holds up to "capacity" tokens and refills at "perMinute" tokens a minute. Each request takes one token
+ (or n, for requests that carry n things - like a batch of claims), and a request that finds too few is rejected.
+ So a client can burst up to capacity, then gets perMinute.
+
+ LOCK-FREE: a bucket's whole state is ONE long - when it was last taken from (ms, upper 40 bits)
+ and how many tokens were left (in 1/256ths of a token, lower 24 bits). Taking a token is a compareAndSet
+ on that long, and the refill since last time is worked out right there - no timer thread refills anything.
+
+ BOUNDED: the keys are split over "stripes" (a ConcurrentHashMap each), and each stripe holds at most
+ maxKeys / stripes buckets. A full bucket is the same as no bucket at all, so evictIdle() throws those away.
+ If a stripe is still full of busy buckets, the one that's been quiet the longest makes room.
+ (A bucket evicted while someone was taking from it can hand out one extra token - fine for a rate limit) */
+public class TokenBuckets {
+
+    private static final int TOKEN_BITS = 24;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final long SCALE = 256; //token fractions per token
+    public static final int MAX_CAPACITY = (int) (TOKEN_MASK / SCALE);
+
+    //a bucket remembers its own limits, so eviction can tell when it's full again
+    //(extends AtomicLong instead of holding one, so a bucket is one object, not two. Never serialized)
+    private static final class Bucket extends AtomicLong {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        final int capacity;
+        final int perMinute;
+
+        Bucket(long state, int capacity, int perMinute) {
+            super(state);
+            this.capacity = capacity;
+            this.perMinute = perMinute;
+        }
+    }
+
+    private final ConcurrentHashMap<Long, Bucket>[] stripes;
+    private final int stripeMask;
+    private final int maxPerStripe;
+    private final LongSupplier clock;
+    private final long start;
+
+    @SuppressWarnings({"unchecked", "rawtypes"}) //no generic array creation in Java
+    public TokenBuckets(int stripes, int maxKeys, LongSupplier millisClock) {
+        if (Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("stripes must be a power of 2");
+        }
+        this.stripes = new ConcurrentHashMap[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ConcurrentHashMap<>();
+        }
+        this.stripeMask = stripes - 1;
+        this.maxPerStripe = Math.max(1, maxKeys / stripes);
+        this.clock = millisClock;
+        this.start = millisClock.getAsLong();
+    }
+
+    /*Take one token from the key's bucket
+     Returns 0 if we got it, otherwise how many ms until the next token (for a Retry-After) */
+    public long tryConsume(long key, int capacity, int perMinute) {
+        return tryConsume(key, 1, capacity, perMinute);
+    }
+
+    /*Take n tokens at once - all of them or none
+     Returns 0 if we got them, otherwise how many ms until there are n (n can't be more than capacity, it'd never fit) */
+    public long tryConsume(long key, int n, int capacity, int perMinute) {
+        if (capacity < 1 || capacity > MAX_CAPACITY || perMinute < 1) {
+            throw new IllegalArgumentException("capacity must be 1.." + MAX_CAPACITY + " and perMinute at least 1");
+        }
+        if (n < 1 || n > capacity) {
+            throw new IllegalArgumentException("Can take 1.." + capacity + " tokens at once, not " + n);
+        }
+        long cost = n * SCALE;
+        long now = clock.getAsLong() - start;
+        ConcurrentHashMap<Long, Bucket> stripe = stripeOf(key);
+        Bucket bucket = stripe.get(key);
+        if (bucket == null) {
+            //a new bucket starts full, minus the tokens we're taking now
+            if (stripe.size() >= maxPerStripe) {
+                makeRoom(stripe, now);
+            }
+            Bucket fresh = new Bucket(pack(now, capacity * SCALE - cost), capacity, perMinute);
+            bucket = stripe.putIfAbsent(key, fresh);
+            if (bucket == null) {
+                return 0;
+            }
+        }
+
+        while (true) {
+            long state = bucket.get();
+            long tokens = tokensAt(state, now, capacity, perMinute);
+            if (tokens < cost) {
+                //time until the missing tokens (and fraction of one) drip in
+                return Math.max(1, ((cost - tokens) * 60_000 + perMinute * SCALE - 1) / (perMinute * SCALE));
+            }
+            if (bucket.compareAndSet(state, pack(now, tokens - cost))) {
+                return 0;
+            }
+        }
+    }
+
+    //Throw away every bucket that has refilled completely (it's the same as a brand new one)
+    public int evictIdle() {
+        long now = clock.getAsLong() - start;
+        int evicted = 0;
+        for (ConcurrentHashMap<Long, Bucket> stripe : stripes) {
+            evicted += evictIdle(stripe, now);
+        }
+        return evicted;
+    }
+
+    public int size() {
+        int size = 0;
+        for (ConcurrentHashMap<Long, Bucket> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private int evictIdle(ConcurrentHashMap<Long, Bucket> stripe, long now) {
+        int evicted = 0;
+        for (Iterator<Map.Entry<Long, Bucket>> it = stripe.entrySet().iterator(); it.hasNext(); ) {
+            Bucket b = it.next().getValue();
+            if (tokensAt(b.get(), now, b.capacity, b.perMinute) == b.capacity * SCALE) {
+                it.remove();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    //the stripe is full - drop the idle buckets, or if there are none, the one that was used longest ago
+    private void makeRoom(ConcurrentHashMap<Long, Bucket> stripe, long now) {
+        if (evictIdle(stripe, now) > 0) {
+            return;
+        }
+        Long oldestKey = null;
+        long oldest = Long.MAX_VALUE;
+        for (Map.Entry<Long, Bucket> e : stripe.entrySet()) {
+            long last = e.getValue().get() >>> TOKEN_BITS;
+            if (last < oldest) {
+                oldest = last;
+                oldestKey = e.getKey();
+            }
+        }
+        if (oldestKey != null) {
+            stripe.remove(oldestKey);
+        }
+    }
+
+    private ConcurrentHashMap<Long, Bucket> stripeOf(long key) {
+        long h = key * 0x9E3779B97F4A7C15L; //spread the bits, so neighbouring user ids land in different stripes
+        return stripes[(int) (h >>> 40) & stripeMask];
+    }
+
+    //tokens (in 1/256ths) the bucket has at "now", counting the refill since it was last taken from
+    private static long tokensAt(long state, long now, int capacity, int perMinute) {
+        long full = capacity * SCALE;
+        long last = state >>> TOKEN_BITS;
+        long elapsed = Math.max(0, now - last);
+        //past the time a refill from empty takes, the bucket is full (and the multiply can't overflow)
+        if (elapsed >= full * 60_000 / ((long) perMinute * SCALE) + 1) {
+            return full;
+        }
+        return Math.min(full, (state & TOKEN_MASK) + refilledBy(now, perMinute) - refilledBy(Math.min(last, now), perMinute));
+    }
+
+    /*How many 1/256ths of a token a bucket gets between "start" and ms "t"
+     The refill is counted on this one fixed grid instead of from each take's timestamp: rounding it down
+     from the timestamp threw away the part of a 1/256th that hadn't finished dripping in, on every take -
+     so a bucket that's taken from as fast as it refills got less than perMinute. This way the part one take
+     doesn't count is counted by the next one. (split at whole minutes so t * rate can't overflow) */
+    private static long refilledBy(long t, int perMinute) {
+        long perMinuteScaled = perMinute * SCALE;
+        return t / 60_000 * perMinuteScaled + t % 60_000 * perMinuteScaled / 60_000;
+    }
+
+    private static long pack(long nowMs, long tokens) {
+        return (nowMs << TOKEN_BITS) | tokens;
+    }
+}
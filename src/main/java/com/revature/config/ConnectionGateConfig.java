@@ -0,0 +1,45 @@
+package com.revature.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/*Puts a GatedDataSource in front of the Hikari pool when datasource.gate.enabled=true
+ (the "virtual" profile turns it on - check application-virtual.properties)
+
+ The gate lets exactly maximum-pool-size threads at the pool at once, so the pool itself never
+ has thousands of threads fighting over it. Everyone else waits their turn at the gate */
+@Configuration
+@ConditionalOnProperty(name = "datasource.gate.enabled", havingValue = "true")
+public class ConnectionGateConfig {
+
+    /*static, because BeanPostProcessors get created before everything else
+     Ordered, so it runs before any other DataSource wrapper (ex: the slow query profiler) hides the Hikari pool */
+    @Bean
+    public static OrderedPostProcessor connectionGate(Environment env) {
+        long timeoutMs = env.getProperty("datasource.gate.timeout-ms", Long.class, 5000L);
+        return new OrderedPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource hikari) {
+                    return new GatedDataSource(hikari, hikari.getMaximumPoolSize(), timeoutMs);
+                }
+                return bean;
+            }
+        };
+    }
+
+    //(the bean method has to return this type - Spring decides BeanPostProcessor order before creating them)
+    interface OrderedPostProcessor extends BeanPostProcessor, Ordered {
+        @Override
+        default int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
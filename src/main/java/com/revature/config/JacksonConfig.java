@@ -0,0 +1,16 @@
+package com.revature.config;
+
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+//Tweaks to the ObjectMapper Spring MVC uses to write our JSON responses
+@Configuration
+public class JacksonConfig {
+
+    //our DTOs have @JsonFilter (for ?fields=) - without a default filter Jackson would refuse to write them
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer sparseFieldsDefault() {
+        return builder -> builder.filters(SparseFields.defaults());
+    }
+}
@@ -0,0 +1,93 @@
+package com.revature.config;
+
+import com.revature.aspects.AdaptiveLimiter;
+import com.revature.aspects.ConcurrencyLimitInterceptor;
+import com.revature.aspects.RateLimitInterceptor;
+import com.revature.services.ReimbursementIngestion;
+import com.revature.services.StatusAudit;
+import com.revature.services.UserCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+/*Metrics for the parts of the app Spring Boot doesn't measure for us
+ (endpoint latency comes from Spring's own http.server.requests timer - see application.properties)
+
+ Scrape them at /actuator/prometheus */
+@Configuration
+public class MetricsConfig {
+
+    /*Adds a RepositoryMetricsInterceptor to every DAO proxy Spring Data creates
+     static, because BeanPostProcessors get created before everything else.
+     The MeterRegistry doesn't exist yet at that point, so it's looked up when the DAO gets built */
+    @Bean
+    public static BeanPostProcessor repositoryMetrics(ObjectProvider<MeterRegistry> registry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxy, info) ->
+                                    proxy.addAdvice(new RepositoryMetricsInterceptor(
+                                            registry.getObject(), info.getRepositoryInterface()))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    //hit/miss/eviction counts for the username cache
+    @Bean
+    public MeterBinder userCacheMetrics(UserCache userCache) {
+        return registry -> CaffeineCacheMetrics.monitor(registry, userCache.getCache(), "users");
+    }
+
+    //the adaptive concurrency limits (check ConcurrencyLimitInterceptor) - current limit, in flight, and 503s sent
+    @Bean
+    public MeterBinder concurrencyLimitMetrics(ConcurrencyLimitInterceptor limits) {
+        return registry -> {
+            for (ConcurrencyLimitInterceptor.EndpointClass c : ConcurrencyLimitInterceptor.EndpointClass.values()) {
+                limiterMetrics(registry, limits.limiter(c), c.key());
+            }
+            limiterMetrics(registry, limits.total(), "total");
+        };
+    }
+
+    private static void limiterMetrics(MeterRegistry registry, AdaptiveLimiter limiter, String tag) {
+        Gauge.builder("http.concurrency.limit", limiter, AdaptiveLimiter::getLimit).tag("class", tag).register(registry);
+        Gauge.builder("http.concurrency.in.flight", limiter, AdaptiveLimiter::getInFlight).tag("class", tag).register(registry);
+        FunctionCounter.builder("http.concurrency.rejected", limiter, AdaptiveLimiter::getRejected).tag("class", tag).register(registry);
+    }
+
+    //how many rate limit buckets we're holding, and how many 429s we've sent
+    @Bean
+    public MeterBinder rateLimitMetrics(RateLimitInterceptor rateLimits) {
+        return registry -> {
+            Gauge.builder("ratelimit.keys", rateLimits, RateLimitInterceptor::trackedKeys).register(registry);
+            FunctionCounter.builder("ratelimit.rejected", rateLimits, RateLimitInterceptor::rejectedCount).register(registry);
+        };
+    }
+
+    //write-behind claims that are on disk but not in the DB yet (stays 0 when write-behind is off),
+    //and the ones that could never go in (moved to ingest_rejections - this should stay at 0)
+    @Bean
+    public MeterBinder ingestionMetrics(ReimbursementIngestion ingestion) {
+        return registry -> {
+            Gauge.builder("reimbursements.ingest.backlog", ingestion, ReimbursementIngestion::backlog).register(registry);
+            FunctionCounter.builder("reimbursements.ingest.rejected", ingestion, ReimbursementIngestion::rejectedCount).register(registry);
+        };
+    }
+
+    //status changes in the audit log (it stops growing once retention kicks in)
+    @Bean
+    public MeterBinder auditMetrics(StatusAudit statusAudit) {
+        return registry -> Gauge.builder("reimbursements.audit.entries", statusAudit, StatusAudit::size).register(registry);
+    }
+}
@@ -0,0 +1,145 @@
+package com.revature.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Optional;
+
+/*Times every SQL statement that goes through the DataSource, and sends the slow ones to the SlowQueryLog
+
+ Connections and statements are wrapped in small proxies. A statement remembers its SQL and the values
+ bound to it, and each execute is timed with nanoTime(). Only statements over the threshold do any more
+ work than that (working out who called them, normalizing the SQL, etc.) */
+public class ProfilingDataSource extends DelegatingDataSource {
+
+    //stands in for a setNull() parameter (so we can tell it apart from "never set")
+    static final Object NULL = new Object();
+
+    private final SlowQueryLog slowQueries;
+
+    public ProfilingDataSource(DataSource target, SlowQueryLog slowQueries) {
+        super(target);
+        this.slowQueries = slowQueries;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return profiled(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return profiled(super.getConnection(username, password));
+    }
+
+    private Connection profiled(Connection target) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(target, method, args);
+                    return switch (method.getName()) {
+                        case "prepareStatement" -> statement(PreparedStatement.class, (Statement) result, (String) args[0]);
+                        case "prepareCall" -> statement(CallableStatement.class, (Statement) result, (String) args[0]);
+                        case "createStatement" -> statement(Statement.class, (Statement) result, null);
+                        default -> result;
+                    };
+                });
+    }
+
+    private Object statement(Class<? extends Statement> type, Statement target, String sql) {
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new StatementHandler(target, sql));
+    }
+
+    //One per statement - remembers its SQL + parameters, and times each execute
+    private class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+        private String sql;
+        private Object[] values = new Object[8]; //index 0 unused, JDBC parameters start at 1
+        private int parameterCount;
+        private int batchSize;
+
+        StatementHandler(Statement target, String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return timed(method, args);
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                bind(index, name.equals("setNull") ? NULL : args[1]);
+            } else if (name.equals("addBatch")) {
+                batchSize++;
+            } else if (name.equals("clearParameters")) {
+                Arrays.fill(values, null);
+                parameterCount = 0;
+            } else if (name.equals("clearBatch")) {
+                batchSize = 0;
+            }
+            return ProfilingDataSource.invoke(target, method, args);
+        }
+
+        private void bind(int index, Object value) {
+            if (index >= values.length) {
+                values = Arrays.copyOf(values, Math.max(index + 1, values.length * 2));
+            }
+            values[index] = value;
+            parameterCount = Math.max(parameterCount, index);
+        }
+
+        private Object timed(Method method, Object[] args) throws Throwable {
+            long start = System.nanoTime();
+            try {
+                return ProfilingDataSource.invoke(target, method, args);
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                if (elapsed >= slowQueries.getThresholdNanos()) {
+                    String executed = args != null && args.length > 0 && args[0] instanceof String s ? s : sql;
+                    slowQueries.record(executed, values, parameterCount, Math.max(batchSize, 1), elapsed,
+                            caller(), getTargetDataSource());
+                }
+                if (method.getName().equals("executeBatch")) {
+                    batchSize = 0;
+                }
+            }
+        }
+    }
+
+    /*The first of OUR methods on the stack (skipping this package) - ex: "ReimbursementService.addReimbursements"
+     Only called for slow statements, so the stack walk doesn't cost anything on the fast path */
+    private static String caller() {
+        Optional<String> frame = StackWalker.getInstance().walk(frames -> frames
+                .filter(f -> f.getClassName().startsWith("com.revature.") && !f.getClassName().startsWith("com.revature.config."))
+                .findFirst()
+                .map(f -> {
+                    String cls = f.getClassName();
+                    int proxySuffix = cls.indexOf("$$");
+                    if (proxySuffix > 0) {
+                        cls = cls.substring(0, proxySuffix);
+                    }
+                    return cls.substring(cls.lastIndexOf('.') + 1) + "." + f.getMethodName();
+                }));
+        return frame.orElse("unknown");
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.revature.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/*Decides whether a read-only transaction may use the read replica (check ReplicaRoutingConfig)
+
+ The replica is a little behind the primary, so a read goes to the PRIMARY instead when:
+    -the replica is further behind than datasource.replica.max-lag-ms (or we couldn't measure it)
+    -the code asked for the primary with onPrimary() (ex: the pending totals, which must match the primary exactly)
+    -the caller added a reimbursement in the last datasource.replica.sticky-ms ("read your own writes" -
+     they'd be confused if their new claim was missing from the list they load right after)
+
+ With no replica configured (datasource.replica.enabled=false) everything here is a no-op */
+@Component
+public class ReadRouting {
+
+    private final boolean enabled;
+    private final long maxLagMs;
+    private final long stickyNanos;
+
+    //the last lag measured by the ReplicaLagMonitor - starts "unknown", so nothing reads the replica until it's checked
+    private volatile long replicaLagMs = Long.MAX_VALUE;
+
+    //set for the duration of onPrimary() / a sticky request
+    private final ThreadLocal<Boolean> primaryOnly = new ThreadLocal<>();
+
+    //userId -> System.nanoTime() until which that user's reads stick to the primary
+    private final ConcurrentHashMap<Integer, Long> stickyUntil = new ConcurrentHashMap<>();
+
+    private final AtomicLong replicaReads = new AtomicLong();
+    private final AtomicLong primaryReads = new AtomicLong();
+
+    @Autowired
+    public ReadRouting(@Value("${datasource.replica.enabled:false}") boolean enabled,
+                       @Value("${datasource.replica.max-lag-ms:1000}") long maxLagMs,
+                       @Value("${datasource.replica.sticky-ms:5000}") long stickyMs) {
+        this.enabled = enabled;
+        this.maxLagMs = maxLagMs;
+        this.stickyNanos = stickyMs * 1_000_000;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    //Called when a read-only connection is about to be opened - true = replica, false = primary
+    boolean useReplica() {
+        boolean replica = enabled && primaryOnly.get() == null && replicaLagMs <= maxLagMs;
+        (replica ? replicaReads : primaryReads).incrementAndGet();
+        return replica;
+    }
+
+    //(the ReplicaLagMonitor keeps this up to date)
+    public void setReplicaLagMs(long lagMs) {
+        this.replicaLagMs = lagMs;
+    }
+
+    public long getReplicaLagMs() {
+        return replicaLagMs;
+    }
+
+    //Run something that reads, but must see the primary's data
+    public <T> T onPrimary(Supplier<T> reads) {
+        if (primaryOnly.get() != null) {
+            return reads.get(); //already on the primary (nested call)
+        }
+        primaryOnly.set(Boolean.TRUE);
+        try {
+            return reads.get();
+        } finally {
+            primaryOnly.remove();
+        }
+    }
+
+    //This user just wrote something - send their reads to the primary until the replica has surely caught up
+    public void wrote(int userId) {
+        if (enabled) {
+            stickyUntil.put(userId, System.nanoTime() + stickyNanos);
+        }
+    }
+
+    public boolean recentlyWrote(int userId) {
+        Long until = stickyUntil.get(userId);
+        if (until == null) {
+            return false;
+        }
+        if (System.nanoTime() - until < 0) {
+            return true;
+        }
+        stickyUntil.remove(userId, until); //expired (only if nobody renewed it meanwhile)
+        return false;
+    }
+
+    //used by ReadRoutingInterceptor - the whole request reads from the primary (cleared by endRequest)
+    void beginPrimaryRequest() {
+        primaryOnly.set(Boolean.TRUE);
+    }
+
+    void endRequest() {
+        primaryOnly.remove();
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+                "enabled", enabled,
+                "replicaLagMs", replicaLagMs,
+                "maxLagMs", maxLagMs,
+                "replicaReads", replicaReads.get(),
+                "primaryReads", primaryReads.get(),
+                "stickyUsers", stickyUntil.size());
+    }
+}
@@ -0,0 +1,41 @@
+package com.revature.config;
+
+import com.revature.services.TokenService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/*Read-your-writes: if the logged in caller added a reimbursement a moment ago,
+ this whole request reads from the primary (the replica might not have their new row yet)
+
+ Only GETs are checked - everything else writes, and writes always use the primary anyway */
+@Component
+public class ReadRoutingInterceptor implements HandlerInterceptor {
+
+    private final ReadRouting readRouting;
+    private final TokenService tokenService;
+
+    @Autowired
+    public ReadRoutingInterceptor(ReadRouting readRouting, TokenService tokenService) {
+        this.readRouting = readRouting;
+        this.tokenService = tokenService;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (readRouting.isEnabled() && "GET".equals(request.getMethod())) {
+            TokenService.Claims claims = tokenService.fromRequest(request);
+            if (claims != null && readRouting.recentlyWrote(claims.userId())) {
+                readRouting.beginPrimaryRequest();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        readRouting.endRequest();
+    }
+}
@@ -0,0 +1,136 @@
+package com.revature.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/*READ/WRITE SPLITTING - read-only transactions go to a read replica, everything else to the primary
+ (only when datasource.replica.enabled=true - otherwise Spring Boot builds its usual single pool)
+
+ How a transaction picks its DB:
+    -@Transactional(readOnly = true) service methods (and Spring Data's own read-only repository methods)
+     mark their JDBC connection read-only when they start
+    -the LazyConnectionDataSourceProxy doesn't open a real connection until the first statement runs,
+     so by then it knows the transaction is read-only, and asks the ReplicaDataSource for one
+    -the ReplicaDataSource asks ReadRouting if the replica is OK to use right now (lag, stickiness),
+     and hands out a primary connection instead if it isn't
+ Writes (and Flyway/Hibernate at startup) never mark their connection read-only, so they always get the primary
+
+ The replica's lag is measured every datasource.replica.lag-check-ms with datasource.replica.lag-query
+ (the default is Postgres streaming replication's "how far behind is the replay") */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingConfig.class);
+
+    //0 while the replica has replayed everything it received, otherwise how old its last replayed transaction is
+    static final String POSTGRES_LAG_QUERY = "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0"
+            + " ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 END";
+
+    //the usual spring.datasource.* pool, just not the bean everyone gets anymore
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public DataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource ds = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        ds.setPoolName("primary");
+        return ds;
+    }
+
+    @Bean
+    @ConfigurationProperties("datasource.replica.hikari")
+    public DataSource replicaDataSource(Environment env) {
+        HikariDataSource ds = new HikariDataSource();
+        ds.setJdbcUrl(env.getRequiredProperty("datasource.replica.url"));
+        ds.setUsername(env.getProperty("datasource.replica.username", env.getProperty("spring.datasource.username")));
+        ds.setPassword(env.getProperty("datasource.replica.password", env.getProperty("spring.datasource.password")));
+        ds.setReadOnly(true);
+        ds.setPoolName("replica");
+        return ds;
+    }
+
+    //The DataSource the rest of the app (JPA, Flyway, the slow query log...) actually uses
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource, ReadRouting readRouting) {
+        LazyConnectionDataSourceProxy routing = new LazyConnectionDataSourceProxy(primaryDataSource);
+        routing.setReadOnlyDataSource(new ReplicaDataSource(replicaDataSource, primaryDataSource, readRouting));
+        return routing;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replicaDataSource, ReadRouting readRouting, Environment env) {
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(new JdbcTemplate(replicaDataSource), readRouting,
+                env.getProperty("datasource.replica.lag-query", POSTGRES_LAG_QUERY));
+        monitor.check(); //so reads can use the replica right away, instead of after the first scheduled check
+        return monitor;
+    }
+
+    //Where read-only connections come from: the replica, unless ReadRouting says the primary has to do
+    static class ReplicaDataSource extends DelegatingDataSource {
+
+        private final DataSource primary;
+        private final ReadRouting readRouting;
+
+        ReplicaDataSource(DataSource replica, DataSource primary, ReadRouting readRouting) {
+            super(replica);
+            this.primary = primary;
+            this.readRouting = readRouting;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return readRouting.useReplica() ? super.getConnection() : primary.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return readRouting.useReplica() ? super.getConnection(username, password) : primary.getConnection(username, password);
+        }
+    }
+
+    public static class ReplicaLagMonitor {
+
+        private final JdbcTemplate replica;
+        private final ReadRouting readRouting;
+        private final String lagQuery;
+
+        ReplicaLagMonitor(JdbcTemplate replica, ReadRouting readRouting, String lagQuery) {
+            this.replica = replica;
+            this.readRouting = readRouting;
+            this.lagQuery = lagQuery;
+        }
+
+        //A replica we can't reach (or measure) counts as infinitely behind, so reads fall back to the primary
+        @Scheduled(initialDelayString = "${datasource.replica.lag-check-ms:1000}",
+                fixedDelayString = "${datasource.replica.lag-check-ms:1000}")
+        public void check() {
+            long lag;
+            try {
+                Number ms = replica.queryForObject(lagQuery, Number.class);
+                lag = ms == null ? 0 : Math.max(0, ms.longValue());
+            } catch (RuntimeException e) {
+                log.warn("Couldn't measure the replica's lag, reads go to the primary: {}", e.getMessage());
+                lag = Long.MAX_VALUE;
+            }
+            readRouting.setReplicaLagMs(lag);
+        }
+    }
+}
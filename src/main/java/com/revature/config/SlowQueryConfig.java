@@ -0,0 +1,43 @@
+package com.revature.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/*The slow query log (check SlowQueryLog) - this replaces spring.jpa.show-sql,
+ which prints EVERY statement and is far too slow to leave on under real traffic
+
+ profiler.slow-query.enabled=false turns off the timing completely (the log just stays empty) */
+@Configuration
+public class SlowQueryConfig {
+
+    @Bean
+    public static SlowQueryLog slowQueryLog(Environment env) {
+        return new SlowQueryLog(
+                env.getProperty("profiler.slow-query.threshold-ms", Long.class, 200L),
+                env.getProperty("profiler.slow-query.capacity", Integer.class, 500),
+                env.getProperty("profiler.slow-query.explain", Boolean.class, false));
+    }
+
+    /*Wraps the app's DataSource in a ProfilingDataSource
+     static, because BeanPostProcessors get created before everything else.
+     Runs AFTER the connection gate (that one is Ordered), so the gate still sees the raw Hikari pool
+     Only the "dataSource" bean - with a read replica that's the routing one, and wrapping the pools under it too would log every statement twice */
+    @Bean
+    public static BeanPostProcessor slowQueryProfiler(Environment env, ObjectProvider<SlowQueryLog> slowQueries) {
+        boolean enabled = env.getProperty("profiler.slow-query.enabled", Boolean.class, true);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (enabled && "dataSource".equals(beanName) && bean instanceof DataSource ds && !(bean instanceof ProfilingDataSource)) {
+                    return new ProfilingDataSource(ds, slowQueries.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
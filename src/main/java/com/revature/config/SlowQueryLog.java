@@ -0,0 +1,158 @@
+package com.revature.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+
+/*The last N SQL statements that took longer than the threshold (a ring buffer - old entries get overwritten)
+
+ ProfilingDataSource times every statement, and hands the slow ones to record().
+ Each entry has the SQL with its literals/IN lists squashed down (so the same query always looks the same),
+ the TYPES of its parameters (never the values - those could be passwords), which of our methods ran it,
+ and optionally the EXPLAIN plan.
+
+ EXPLAINs run on one background thread with their own connection, so the request that was already slow
+ doesn't get any slower. If that thread falls behind, the entry is saved without a plan */
+public class SlowQueryLog implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    //plans queued up waiting for the EXPLAIN thread - past this we stop asking for plans
+    private static final int MAX_PENDING_EXPLAINS = 32;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.$])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    public record SlowQuery(Instant at, double elapsedMs, String sql, List<String> parameterTypes,
+                            int batchSize, String caller, String plan) {
+    }
+
+    private final long thresholdNanos;
+    private final boolean explain;
+    private final AtomicReferenceArray<SlowQuery> ring;
+    private final AtomicLong next = new AtomicLong();
+    private final ThreadPoolExecutor explainer;
+
+    public SlowQueryLog(long thresholdMs, int capacity, boolean explain) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+        this.explain = explain;
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.explainer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_PENDING_EXPLAINS), r -> {
+                    Thread t = new Thread(r, "slow-query-explain");
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    public long getThresholdNanos() {
+        return thresholdNanos;
+    }
+
+    /*Save one slow statement
+     values are the bound parameters - only used to run the EXPLAIN, they never go into the log
+     explainSource should be the real (unprofiled) DataSource, so the EXPLAIN doesn't get logged itself */
+    public void record(String sql, Object[] values, int parameterCount, int batchSize, long elapsedNanos,
+                       String caller, DataSource explainSource) {
+        String normalized = normalize(sql);
+        List<String> types = new ArrayList<>(parameterCount);
+        for (int i = 1; i <= parameterCount; i++) {
+            Object v = values[i];
+            types.add(v == null || v == ProfilingDataSource.NULL ? "null" : v.getClass().getSimpleName());
+        }
+        SlowQuery entry = new SlowQuery(Instant.now(), elapsedNanos / 1_000_000.0, normalized, List.copyOf(types),
+                batchSize, caller, null);
+
+        if (explain && batchSize <= 1 && normalized.regionMatches(true, 0, "select", 0, 6)) {
+            Object[] bound = Arrays.copyOf(values, parameterCount + 1);
+            try {
+                explainer.execute(() -> add(withPlan(entry, explain(explainSource, sql, bound, parameterCount))));
+                return;
+            } catch (RejectedExecutionException e) {
+                //EXPLAIN thread is busy - save it without the plan
+            }
+        }
+        add(entry);
+    }
+
+    //the newest entries first
+    public List<SlowQuery> recent(int limit) {
+        List<SlowQuery> out = new ArrayList<>(Math.min(limit, ring.length()));
+        long end = next.get();
+        for (long i = end - 1; i >= 0 && i >= end - ring.length() && out.size() < limit; i--) {
+            SlowQuery q = ring.get((int) (i % ring.length()));
+            if (q != null) {
+                out.add(q);
+            }
+        }
+        return out;
+    }
+
+    public void clear() {
+        for (int i = 0; i < ring.length(); i++) {
+            ring.set(i, null);
+        }
+    }
+
+    @Override
+    public void close() {
+        explainer.shutdownNow();
+    }
+
+    private void add(SlowQuery entry) {
+        ring.set((int) (next.getAndIncrement() % ring.length()), entry);
+        log.debug("Slow query ({} ms) from {}: {}", entry.elapsedMs(), entry.caller(), entry.sql());
+    }
+
+    private static SlowQuery withPlan(SlowQuery q, String plan) {
+        return new SlowQuery(q.at(), q.elapsedMs(), q.sql(), q.parameterTypes(), q.batchSize(), q.caller(), plan);
+    }
+
+    private static String explain(DataSource ds, String sql, Object[] values, int parameterCount) {
+        try (Connection conn = ds.getConnection();
+             PreparedStatement ps = conn.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 1; i <= parameterCount; i++) {
+                ps.setObject(i, values[i] == ProfilingDataSource.NULL ? null : values[i]);
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (!plan.isEmpty()) {
+                        plan.append('\n');
+                    }
+                    plan.append(rs.getString(1));
+                }
+            }
+            return plan.toString();
+        } catch (SQLException e) {
+            return "EXPLAIN failed: " + e.getMessage();
+        }
+    }
+
+    /*Turns the SQL into a "shape" that's the same no matter what values were used
+     ex: select ... where id in (?, ?, ?) and amount > 50   ->   select ... where id in (?, ...) and amount > ? */
+    public static String normalize(String sql) {
+        String s = STRING_LITERAL.matcher(sql).replaceAll("?");
+        s = NUMBER_LITERAL.matcher(s).replaceAll("?");
+        s = IN_LIST.matcher(s).replaceAll("(?, ...)");
+        return WHITESPACE.matcher(s).replaceAll(" ").trim();
+    }
+}
@@ -0,0 +1,52 @@
+package com.revature.config;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.http.converter.json.MappingJacksonValue;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/*SPARSE FIELDSETS - ?fields=reimbursementId,amount,status sends back only those fields of each item
+
+ Our outgoing DTOs are tagged with @JsonFilter. Normally that filter lets every field through
+ (check JacksonConfig), but select() swaps in one that only writes the requested fields.
+ Jackson never even calls the getters for the fields that get left out */
+public final class SparseFields {
+
+    public static final String USER_FILTER = "userFields";
+    public static final String REIMBURSEMENT_FILTER = "reimbursementFields";
+
+    private SparseFields() {
+    }
+
+    //every @JsonFilter writes every field, unless a request says otherwise
+    public static SimpleFilterProvider defaults() {
+        return new SimpleFilterProvider().setDefaultFilter(SimpleBeanPropertyFilter.serializeAll());
+    }
+
+    /*Wrap a response body so only the requested fields of filterId's DTO get written
+     fields = the comma separated ?fields= param (null or blank means all of them)
+     Throws an IllegalArgumentException (400) for a field name the DTO doesn't have */
+    public static MappingJacksonValue select(Object body, String filterId, Set<String> allowed, String fields) {
+        MappingJacksonValue value = new MappingJacksonValue(body);
+        if (fields == null || fields.isBlank()) {
+            return value;
+        }
+
+        Set<String> requested = new LinkedHashSet<>();
+        for (String f : fields.split(",")) {
+            String name = f.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!allowed.contains(name)) {
+                throw new IllegalArgumentException("Unknown field: " + name + " (pick from " + new TreeSet<>(allowed) + ")");
+            }
+            requested.add(name);
+        }
+        value.setFilters(defaults().addFilter(filterId, SimpleBeanPropertyFilter.filterOutAllExcept(requested)));
+        return value;
+    }
+}
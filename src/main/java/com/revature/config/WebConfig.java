@@ -0,0 +1,40 @@
+package com.revature.config;
+
+import com.revature.aspects.AuthInterceptor;
+import com.revature.aspects.ConcurrencyLimitInterceptor;
+import com.revature.aspects.RateLimitInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+//Spring MVC settings - right now, just plugging in our interceptors
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ConcurrencyLimitInterceptor concurrencyLimitInterceptor;
+    private final AuthInterceptor authInterceptor;
+    private final RateLimitInterceptor rateLimitInterceptor;
+    private final ReadRoutingInterceptor readRoutingInterceptor;
+
+    @Autowired
+    public WebConfig(ConcurrencyLimitInterceptor concurrencyLimitInterceptor, AuthInterceptor authInterceptor,
+                     RateLimitInterceptor rateLimitInterceptor, ReadRoutingInterceptor readRoutingInterceptor) {
+        this.concurrencyLimitInterceptor = concurrencyLimitInterceptor;
+        this.authInterceptor = authInterceptor;
+        this.rateLimitInterceptor = rateLimitInterceptor;
+        this.readRoutingInterceptor = readRoutingInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        //first, so an overloaded app turns requests away before spending anything on them (503 + Retry-After)
+        registry.addInterceptor(concurrencyLimitInterceptor);
+        //runs before every controller method, and rejects callers that aren't allowed in
+        registry.addInterceptor(authInterceptor);
+        //then counts the caller's requests to @RateLimited methods (429 + Retry-After when they're over)
+        registry.addInterceptor(rateLimitInterceptor);
+        //then sends the reads of anyone who just wrote something to the primary DB (read-your-writes)
+        registry.addInterceptor(readRoutingInterceptor);
+    }
+}
@@ -1,16 +1,17 @@
 package com.revature.controllers;
 
+import com.revature.aspects.Critical;
 import com.revature.models.DTOs.LoginDTO;
 import com.revature.models.DTOs.OutgoingUserDTO;
 import com.revature.services.AuthService;
-import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
 @RequestMapping("/auth")
-@CrossOrigin //requests from any location can react this no problem. not very secure
+@CrossOrigin(exposedHeaders = "Authorization") //requests from any location can react this no problem. not very secure
+//(exposedHeaders lets the front end read the token we send back)
 public class AuthController {
 
     //autowire the service
@@ -21,21 +22,21 @@ public class AuthController {
         this.authService = authService;
     }
 
-    //uninitialized HttpSession (filled upon successful login)
-    public static HttpSession session;
-
-    //NOTE: our HTTP Session is coming in via parameters this time (to be sent to the controller)
-    //The session in the parameter is not the same as the static session above
+    //NOTE: no HttpSession anymore! On login we send back a signed token in the Authorization header
+    //The client sends it back (as "Authorization: Bearer <token>") on every request after that
+    @Critical //keeps working while the app is shedding load (check ConcurrencyLimitInterceptor)
     @PostMapping
-    public ResponseEntity<OutgoingUserDTO> login(@RequestBody LoginDTO lDTO, HttpSession session){
+    public ResponseEntity<OutgoingUserDTO> login(@RequestBody LoginDTO lDTO){
 
         //send LoginDTO to service, getting us the OutUser
-        OutgoingUserDTO uDTO = authService.login(lDTO, session);
+        OutgoingUserDTO uDTO = authService.login(lDTO);
 
-        //The session gets initialized and filled with user data in the service layer!
+        //if we get here, login was successful! make them a token
+        String token = authService.issueToken(uDTO);
 
-        //if we get here, login was successful and session was created!
-        return ResponseEntity.ok(uDTO);
+        return ResponseEntity.ok()
+                .header("Authorization", "Bearer " + token)
+                .body(uDTO);
 
     }
 
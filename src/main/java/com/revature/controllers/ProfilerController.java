@@ -0,0 +1,50 @@
+package com.revature.controllers;
+
+import com.revature.aspects.AdminOnly;
+import com.revature.config.ReadRouting;
+import com.revature.config.SlowQueryLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@CrossOrigin(origins = "http://localhost:3000")
+@RestController
+@RequestMapping("/profiler") //Admin-only tools for seeing how the app is performing
+public class ProfilerController {
+
+    private static final int MAX_LIMIT = 500;
+
+    private final SlowQueryLog slowQueryLog;
+    private final ReadRouting readRouting;
+
+    @Autowired
+    public ProfilerController(SlowQueryLog slowQueryLog, ReadRouting readRouting) {
+        this.slowQueryLog = slowQueryLog;
+        this.readRouting = readRouting;
+    }
+
+    //GET the most recent slow SQL statements (newest first)
+    @AdminOnly
+    @GetMapping("/slow-queries")
+    public ResponseEntity<List<SlowQueryLog.SlowQuery>> getSlowQueries(@RequestParam(value = "limit", defaultValue = "50") int limit){
+        return ResponseEntity.ok(slowQueryLog.recent(Math.max(1, Math.min(limit, MAX_LIMIT))));
+    }
+
+    //DELETE clears the log (ex: after adding an index, to see what's still slow)
+    @AdminOnly
+    @DeleteMapping("/slow-queries")
+    public ResponseEntity<Void> clearSlowQueries(){
+        slowQueryLog.clear();
+        return ResponseEntity.noContent().build();
+    }
+
+    //GET the read replica's last measured lag, and how many reads went to the replica vs the primary
+    @AdminOnly
+    @GetMapping("/read-routing")
+    public ResponseEntity<Map<String, Object>> getReadRouting(){
+        return ResponseEntity.ok(readRouting.stats());
+    }
+}
@@ -1,13 +1,32 @@
 package com.revature.controllers;
 
 import com.revature.aspects.AdminOnly;
+import com.revature.aspects.Critical;
+import com.revature.aspects.RateLimitInterceptor;
+import com.revature.aspects.RateLimited;
+import com.revature.models.DTOs.BulkResolveDTO;
+import com.revature.models.DTOs.BulkResolveResultDTO;
+import com.revature.config.SparseFields;
+import com.revature.models.DTOs.IncomingReimbursementDTO;
+import com.revature.models.DTOs.IngestReceiptDTO;
+import com.revature.models.DTOs.NormalizedReimbursementsDTO;
+import com.revature.models.DTOs.OutgoingReimbursementDTO;
+import com.revature.models.DTOs.ReimbursementPageDTO;
 import com.revature.models.Reimbursement;
+import com.revature.services.AuditLog;
 import com.revature.services.ReimbursementService;
+import com.revature.services.StatusAudit;
+import com.revature.services.StatusConflictException;
+import com.revature.services.TokenService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.websocket.server.PathParam;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 @CrossOrigin(origins = "http://localhost:3000")
@@ -17,51 +36,164 @@ public class ReimbursementController {
 
     //Autowire a ReimbursementService (with Constructor Injection) to use its method
     private ReimbursementService reimbursementService;
+    private StatusAudit statusAudit;
+    private TokenService tokenService; //for the id of the admin resolving a reimbursement
+    private RateLimitInterceptor rateLimits; //batches are charged per claim, check insertReimbursements
+
+    //the most audit entries we'll send back at once
+    private static final int MAX_AUDIT_LIMIT = 10_000;
 
     @Autowired
-    public ReimbursementController(ReimbursementService reimbursementService) {
+    public ReimbursementController(ReimbursementService reimbursementService, StatusAudit statusAudit, TokenService tokenService,
+                                   RateLimitInterceptor rateLimits) {
         this.reimbursementService = reimbursementService;
+        this.statusAudit = statusAudit;
+        this.tokenService = tokenService;
+        this.rateLimits = rateLimits;
     }
 
     //A method that inserts a new Reimbursement into the DB
+    @RateLimited("submit") //each caller only gets so many a minute (check RateLimitInterceptor)
     @PostMapping //POST requests to /reimbursements will come here
-    public ResponseEntity<Reimbursement> insertReimbursement(@RequestParam("description") String description,@RequestParam("amount") int amount,@RequestParam("username") String username){
+    public ResponseEntity<?> insertReimbursement(@RequestParam("description") String description,@RequestParam("amount") int amount,@RequestParam("username") String username){
+        //with write-behind on, the claim is only on disk so far - 202 ACCEPTED, and it reaches the DB shortly
+        if(reimbursementService.isWriteBehind()){
+            long ingestId = reimbursementService.submitReimbursement(description, amount, username);
+            return ResponseEntity.status(202).body(new IngestReceiptDTO(ingestId, "accepted"));
+        }
+
         //send the Reimbursement data to the service, and save the result in a Reimbursement object
 
         Reimbursement p = reimbursementService.addReimbursement(description,amount,username);
 
-        //send the new Reimbursement data back to the client with 201 - CREATED
-        return ResponseEntity.status(201).body(p);
+        //send the new Reimbursement data back to the client with 201 - CREATED (as a DTO, so no password)
+        return ResponseEntity.status(201).body(new OutgoingReimbursementDTO(p));
 
     }
+    //A method that inserts a whole batch of Reimbursements (JSON array in the body)
+    //Sends back one result per item - the new id, or why that item was rejected
+    //Each claim in it costs a token of the "batch" limit (one token for up to 5000 claims would make the limit pointless)
+    @RateLimited(value = "batch", perItem = true)
+    @PostMapping("/batch") //POST requests to /reimbursements/batch will come here
+    public ResponseEntity<?> insertReimbursements(@RequestBody List<IncomingReimbursementDTO> claims, HttpServletRequest request){
+        long waitMs = rateLimits.consume(request, "batch", claims.size());
+        if (waitMs > 0) {
+            return ResponseEntity.status(429).header("Retry-After", Long.toString((waitMs + 999) / 1000))
+                    .body("Too many requests, please slow down");
+        }
+        return ResponseEntity.ok(reimbursementService.addReimbursements(claims));
+    }
+
+    //expected = the status the admin saw (usually pending). If it changed in the meantime, we send back a 409
     @AdminOnly
+    @Critical
     @PutMapping
-    public ResponseEntity<Reimbursement> resolveReimbursement(@RequestParam("reimbursementid") int reimbursementid, @RequestParam("status") String status){
-        return ResponseEntity.ok(reimbursementService.resolveReimbursement(reimbursementid,status));
+    public ResponseEntity<OutgoingReimbursementDTO> resolveReimbursement(@RequestParam("reimbursementid") int reimbursementid, @RequestParam("status") String status,
+                                                                         @RequestParam(value = "expected", defaultValue = "pending") String expected,
+                                                                         HttpServletRequest request){
+        int adminUserId = tokenService.fromRequest(request).userId(); //@AdminOnly already checked the token
+        return ResponseEntity.ok(new OutgoingReimbursementDTO(reimbursementService.resolveReimbursement(reimbursementid, status, expected, adminUserId)));
     }
 
-    //A method that gets all Reimbursements from the DB
+    //Admins can resolve a whole queue of pending reimbursements in one request (and one UPDATE)
+    @AdminOnly
+    @PutMapping("/bulk")
+    public ResponseEntity<BulkResolveResultDTO> resolveReimbursements(@RequestBody BulkResolveDTO request, HttpServletRequest http){
+        return ResponseEntity.ok(reimbursementService.resolveReimbursements(request, tokenService.fromRequest(http).userId()));
+    }
+
+    /*Admins can search the descriptions: ?q=hotel conference (check ReimbursementDAO.searchDescriptions for the syntax)
+     optionally only one status (&status=pending) and/or one user's (&username=...), best matches first
+     Pages are numbered from 0 (&page=...), and "next" is the page to ask for after this one */
+    @AdminOnly
+    @RateLimited("search")
+    @GetMapping("/search")
+    public ResponseEntity<ReimbursementPageDTO> searchReimbursements(@RequestParam("q") String q,
+                                                                     @RequestParam(value = "status", required = false) String status,
+                                                                     @RequestParam(value = "username", required = false) String username,
+                                                                     @RequestParam(value = "page", defaultValue = "0") int page,
+                                                                     @RequestParam(value = "size", defaultValue = "50") int size){
+        return ResponseEntity.ok(reimbursementService.searchReimbursements(q, status, username, page, size));
+    }
+
+    /*Admins can look through the status history (check StatusAudit), oldest first
+     Either one reimbursement's history (?reimbursementid=5), or every change in a time range
+     (?from=...&to=..., ISO-8601 instants like 2024-05-01T00:00:00Z, to is exclusive and can be left off)
+     Only the changes made by THIS node - with several nodes, each one has its own part of the history */
+    @AdminOnly
+    @GetMapping("/audit")
+    public ResponseEntity<List<AuditLog.Entry>> getAuditLog(@RequestParam(value = "reimbursementid", required = false) Integer reimbursementid,
+                                                            @RequestParam(value = "from", required = false) Instant from,
+                                                            @RequestParam(value = "to", required = false) Instant to,
+                                                            @RequestParam(value = "limit", defaultValue = "1000") int limit){
+        limit = Math.max(1, Math.min(limit, MAX_AUDIT_LIMIT));
+        if (reimbursementid != null) {
+            if (from != null || to != null) {
+                throw new IllegalArgumentException("Send either reimbursementid or a time range, not both");
+            }
+            return ResponseEntity.ok(statusAudit.history(reimbursementid, limit));
+        }
+        if (from == null) {
+            throw new IllegalArgumentException("Send reimbursementid or from (and optionally to)");
+        }
+        long end = to == null ? Long.MAX_VALUE : to.toEpochMilli();
+        return ResponseEntity.ok(statusAudit.between(from.toEpochMilli(), end, limit));
+    }
+
+    //A method that gets all Reimbursements from the DB, one page at a time
+    //the client sends back the "next" cursor from the last page to get the following page
+    //If-None-Match with the last ETag gets a 304 (no body) when no reimbursement changed since then
+    //?fields=reimbursementId,amount sends only those fields, ?shape=normalized lists each user once (check the DTOs)
     @AdminOnly
     @GetMapping("/all/{pending}") //GET requests to /reimbursements will come here
-    public ResponseEntity<List<Reimbursement>> getAllReimbursements(@PathVariable("pending") Boolean pending){
-        if (pending){
-            return ResponseEntity.ok(reimbursementService.getAllPendingReimbursements());
-        } else {
-            return ResponseEntity.ok(reimbursementService.getAllReimbursements());
+    public ResponseEntity<MappingJacksonValue> getAllReimbursements(@PathVariable("pending") Boolean pending,
+                                                                    @RequestParam(value = "after", defaultValue = "0") int after,
+                                                                    @RequestParam(value = "size", defaultValue = "100") int size,
+                                                                    @RequestParam(value = "fields", required = false) String fields,
+                                                                    @RequestParam(value = "shape", defaultValue = "nested") String shape,
+                                                                    WebRequest request){
+        //checkNotModified sets the ETag header, and the 304 status if the client's copy is still current
+        //(the service calls it with the ETag, and sends back null instead of a page in that case)
+        ReimbursementPageDTO page = reimbursementService.getReimbursementPage(pending, after, size, request::checkNotModified);
+        if (page == null) {
+            return null;
         }
+        Object body = isNormalized(shape) ? NormalizedReimbursementsDTO.of(page.getItems(), page.getNext()) : page;
+        return ResponseEntity.ok(SparseFields.select(body, SparseFields.REIMBURSEMENT_FILTER, OutgoingReimbursementDTO.FIELDS, fields));
     }
 
     @GetMapping("/user/{pending}/{username}")
-    public ResponseEntity<List<Reimbursement>> getUserReimbursements(@PathVariable("pending") Boolean pending, @PathVariable("username") String username){
-        if (pending){
-            return ResponseEntity.ok(reimbursementService.getPendingUserReimbursements(username));
-        } else {
-            return ResponseEntity.ok(reimbursementService.getUserReimbursements(username));
+    public ResponseEntity<MappingJacksonValue> getUserReimbursements(@PathVariable("pending") Boolean pending, @PathVariable("username") String username,
+                                                                     @RequestParam(value = "fields", required = false) String fields,
+                                                                     @RequestParam(value = "shape", defaultValue = "nested") String shape,
+                                                                     WebRequest request){
+        List<OutgoingReimbursementDTO> items = reimbursementService.getUserReimbursements(username, pending, request::checkNotModified);
+        if (items == null) {
+            return null;
+        }
+        Object body = isNormalized(shape) ? NormalizedReimbursementsDTO.of(items, null) : items;
+        return ResponseEntity.ok(SparseFields.select(body, SparseFields.REIMBURSEMENT_FILTER, OutgoingReimbursementDTO.FIELDS, fields));
+    }
+
+    //shape=nested (the default - each reimbursement has its user inside it) or shape=normalized
+    private static boolean isNormalized(String shape) {
+        if (shape.equals("normalized")) {
+            return true;
+        }
+        if (shape.equals("nested")) {
+            return false;
         }
+        throw new IllegalArgumentException("shape must be nested or normalized");
+    }
+
+    //What happened to a claim that got a 202 (check ReimbursementService.getIngestStatus)
+    @GetMapping("/ingest/{ingestId}")
+    public ResponseEntity<IngestReceiptDTO> getIngestStatus(@PathVariable("ingestId") long ingestId) {
+        return ResponseEntity.ok(reimbursementService.getIngestStatus(ingestId));
     }
 
     @GetMapping("/amount/{username}")
-    public ResponseEntity<Integer> getTotalPendingAmount(@PathVariable("username") String username) {
+    public ResponseEntity<Long> getTotalPendingAmount(@PathVariable("username") String username) {
         return ResponseEntity.ok(reimbursementService.getTotalPendingAmount(username));
     }
 
@@ -73,4 +205,12 @@ public class ReimbursementController {
         return ResponseEntity.status(400).body(e.getMessage());
     }
 
+    //Exception Handler for lost races (ex: another admin already resolved the reimbursement)
+    //only that one - any other exception is a bug on our end, and stays a 500
+    @ExceptionHandler(StatusConflictException.class)
+    public ResponseEntity<String> handleStatusConflict(StatusConflictException e){
+        //Return a 409 (CONFLICT) status code with the exception message
+        return ResponseEntity.status(409).body(e.getMessage());
+    }
+
 }
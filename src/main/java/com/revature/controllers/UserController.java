@@ -1,13 +1,19 @@
 package com.revature.controllers;
 
 import com.revature.aspects.AdminOnly;
-import com.revature.models.User;
+import com.revature.aspects.LoginRequired;
+import com.revature.aspects.RateLimited;
+import com.revature.config.SparseFields;
+import com.revature.models.DTOs.OutgoingUserDTO;
 import com.revature.services.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @CrossOrigin(origins = "http://localhost:3000")
@@ -25,45 +31,61 @@ public class UserController {
 
     //POST request to insert a new User
     @PostMapping //POST requests to /users will come here
-    public ResponseEntity<User> registerUser(@RequestParam("firstName") String firstname, @RequestParam("lastName") String lastName, @RequestParam("username") String username, @RequestParam("password") String password, @RequestParam("role") String role) {
-        //Send the new user to the Service to be inserted, and save the returned User
-        return ResponseEntity.status(201).body(userService.registerUser(firstname, lastName, username, password, role));
+    public ResponseEntity<OutgoingUserDTO> registerUser(@RequestParam("firstName") String firstname, @RequestParam("lastName") String lastName, @RequestParam("username") String username, @RequestParam("password") String password, @RequestParam("role") String role) {
+        //Send the new user to the Service to be inserted, and send back the saved User (as a DTO - no password!)
+        return ResponseEntity.status(201).body(new OutgoingUserDTO(userService.registerUser(firstname, lastName, username, password, role)));
 
     }
 
     @AdminOnly
     @DeleteMapping
-    public ResponseEntity<User> deleteUser(@RequestParam("userid") int userid){
-        return ResponseEntity.ok(userService.deleteUser(userid));
+    public ResponseEntity<OutgoingUserDTO> deleteUser(@RequestParam("userid") int userid){
+        return ResponseEntity.ok(new OutgoingUserDTO(userService.deleteUser(userid)));
     }
     //GET request to get all Users\
     @AdminOnly
+    //?fields=userId,username sends only those fields of each user
     @GetMapping //GET requests to /users will come here
-    public ResponseEntity<List<User>> getAllUsers(){
+    public ResponseEntity<MappingJacksonValue> getAllUsers(@RequestParam(value = "fields", required = false) String fields,
+                                                           WebRequest request){
 
         //not much error handling in a get all
-        List<User> allUsers = userService.getAllUsers();
+        //nobody was added or removed since the client's copy? 304 NOT MODIFIED, just one version lookup
+        //(checkNotModified sets the ETag header and the 304 - the service calls it, and sends back null in that case)
+        List<OutgoingUserDTO> allUsers = userService.getAllUsers(request::checkNotModified);
+        if (allUsers == null) {
+            return null;
+        }
 
         //send the users back with a 200 status code
-        return ResponseEntity.ok(allUsers);
+        return ResponseEntity.ok(SparseFields.select(allUsers, SparseFields.USER_FILTER, OutgoingUserDTO.FIELDS, fields));
+    }
+
+    //GET request for the UserCache counters (hits, misses, evictions)
+    @AdminOnly
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, Object>> getUserCacheStats(){
+        return ResponseEntity.ok(userService.getUserCacheStats());
     }
 
+    @LoginRequired
+    @RateLimited("search")
     @GetMapping("/search/{username}")
-    public ResponseEntity<?> getUserByUsernameStartingWith(@PathVariable("username") String baseUsername){
+    public ResponseEntity<?> getUserByUsernameStartingWith(@PathVariable("username") String baseUsername,
+                                                           @RequestParam(value = "limit", defaultValue = "20") int limit,
+                                                           @RequestParam(value = "fields", required = false) String fields){
         String username = baseUsername.substring(1);
         //ResponseEntity<?>??? what's that?
         //It lets us send any data type we want in the response
         //I avoid this when possible, it can make debugs pretty annoying
         //But I'll often use it since it's so flexible
-        //if no user is found, we can send a message saying no user found
-        if(userService.getUserByUsernameStartingWith(username) == null){
-            return ResponseEntity.status(404).body("No user found with username: " + username);
-        }
-        //Return the found User with a 200 status code
-        return ResponseEntity.ok(userService.getUserByUsernameStartingWith(username));
+        //no matches is just an empty list (it's a search, not a lookup) - so always a 200
+        List<OutgoingUserDTO> users = userService.getUserByUsernameStartingWith(username, limit);
+        return ResponseEntity.ok(SparseFields.select(users, SparseFields.USER_FILTER, OutgoingUserDTO.FIELDS, fields));
     }
 
     //GET requests to get a single User by username
+    @LoginRequired
     @GetMapping("/username/{username}")
     public ResponseEntity<?> getUserByUsername(@PathVariable("username") String username){
         //ResponseEntity<?>??? what's that?
@@ -72,7 +94,7 @@ public class UserController {
         //But I'll often use it since it's so flexible
 
         //if no user is found, we can send a message saying no user found
-        Optional<List<User>> response = Optional.ofNullable(userService.getUserByUsername(username));
+        Optional<List<OutgoingUserDTO>> response = Optional.ofNullable(userService.getUserByUsername(username));
         if(response.isEmpty()){
             return ResponseEntity.status(404).body("No user found with username: " + username);
         }
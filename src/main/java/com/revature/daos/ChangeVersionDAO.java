@@ -0,0 +1,25 @@
+package com.revature.daos;
+
+import com.revature.models.ChangeVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+//The version rows behind the ETags (check ChangeVersions) - each query here is one small statement
+@Repository
+public interface ChangeVersionDAO extends JpaRepository<ChangeVersion, Integer> {
+
+    //returns how many rows it changed (0 = there's no row for that key yet)
+    @Modifying
+    @Query("UPDATE ChangeVersion v SET v.version = v.version + :by WHERE v.scopeKey = :scopeKey")
+    int bump(int scopeKey, long by);
+
+    //null if nothing was ever recorded for that key
+    @Query("SELECT v.version FROM ChangeVersion v WHERE v.scopeKey = :scopeKey")
+    Long versionOf(int scopeKey);
+
+    //the versions of a range of keys added up (a short primary key range scan - used for the striped rows)
+    @Query("SELECT COALESCE(SUM(v.version), 0) FROM ChangeVersion v WHERE v.scopeKey BETWEEN :from AND :to")
+    long sumOfVersions(int from, int to);
+}
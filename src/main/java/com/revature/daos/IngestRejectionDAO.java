@@ -0,0 +1,17 @@
+package com.revature.daos;
+
+import com.revature.models.IngestRejection;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+//Write-behind claims that couldn't be inserted, by ingest id (check ReimbursementIngestion)
+@Repository
+public interface IngestRejectionDAO extends JpaRepository<IngestRejection, Long> {
+
+    //which of these write-behind claims were rejected already (so a replay doesn't try them again)
+    @Query("SELECT r.ingestSeq FROM IngestRejection r WHERE r.ingestSeq BETWEEN :from AND :to")
+    List<Long> findIngestSeqsBetween(long from, long to);
+}
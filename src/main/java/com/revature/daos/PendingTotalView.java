@@ -0,0 +1,5 @@
+package com.revature.daos;
+
+//PROJECTION of one row of the "pending totals per user" GROUP BY query in ReimbursementDAO
+public record PendingTotalView(int userId, long count, long sum) {
+}
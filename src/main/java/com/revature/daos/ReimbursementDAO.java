@@ -2,9 +2,15 @@ package com.revature.daos;
 
 import com.revature.models.Reimbursement;
 import com.revature.models.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 //Check UserDAO for general notes about how Spring Data DAOs work
@@ -12,16 +18,99 @@ import java.util.List;
 @Repository //make this class a Bean (1 of the 4 steretype annotations)
 public interface ReimbursementDAO extends JpaRepository<Reimbursement, Integer> {
 
+    /*@EntityGraph turns the (lazy) user field into a JOIN FETCH for that one query
+     So every query that hands Reimbursements to Jackson brings its Users along in the SAME select
+     (instead of firing 1 extra select per row - the "N+1 problem") */
+
+    @EntityGraph(attributePaths = "user")
     Reimbursement findByReimbursementId(int reimbursementId);
 
     List<Reimbursement> findByDescription(String description);
 
     List<Reimbursement> findByAmountBetween(int lower, int higher);
 
+    @EntityGraph(attributePaths = "user")
     List<Reimbursement> findByStatus(String status);
 
+    @EntityGraph(attributePaths = "user")
     List<Reimbursement> findByUser(User user);
 
+    @EntityGraph(attributePaths = "user")
     List<Reimbursement> findByUserAndStatus(User user, String status);
 
+    /*KEYSET PAGINATION - instead of loading the whole table with findAll(), we grab the next "page"
+     of rows whose id is greater than the last id the client saw (the cursor)
+     Limit caps how many rows the DB sends back, so memory per request stays the same no matter the table size */
+    @EntityGraph(attributePaths = "user")
+    List<Reimbursement> findByReimbursementIdGreaterThanOrderByReimbursementIdAsc(int afterId, Limit limit);
+
+    @EntityGraph(attributePaths = "user")
+    List<Reimbursement> findByStatusAndReimbursementIdGreaterThanOrderByReimbursementIdAsc(String status, int afterId, Limit limit);
+
+    //one page of search results (or any other list of ids), users included - in no particular order
+    @EntityGraph(attributePaths = "user")
+    List<Reimbursement> findByReimbursementIdIn(Collection<Integer> ids);
+
+    /*FULL-TEXT SEARCH over descriptions (Postgres only - check V4/V5 in db/migration)
+     The query is in "web search" syntax: words are ANDed, "quoted phrases", -not, or
+     Words are stemmed, so "hotels" finds "hotel". Best matches (ts_rank_cd) come first, newest first among ties.
+     Ranking reads every row's tsvector, so we don't rank every match: the GIN index finds the matches, the inner
+     query keeps the newest "candidates" of them (a sort on the id only), and only those get ranked and paged.
+     (A search matching more than that is ranked within its newest matches - narrow it to reach older ones)
+     Only the ids come back. status / userId null = any */
+    @Query(nativeQuery = true, value = "SELECT m.reimbursement_id FROM (" +
+            "SELECT r.reimbursement_id, r.description_tsv FROM project1.reimbursements r " +
+            "WHERE r.description_tsv @@ websearch_to_tsquery('english', :query) " +
+            "AND (CAST(:status AS varchar) IS NULL OR r.status = :status) " +
+            "AND (CAST(:userId AS integer) IS NULL OR r.user_id = :userId) " +
+            "ORDER BY r.reimbursement_id DESC LIMIT :candidates) m " +
+            "ORDER BY ts_rank_cd(m.description_tsv, websearch_to_tsquery('english', :query)) DESC, m.reimbursement_id DESC " +
+            "LIMIT :limit OFFSET :offset")
+    List<Integer> searchDescriptions(String query, String status, Integer userId, int candidates, int limit, int offset);
+
+    //count and sum of every user's pending reimbursements, added up by the DB (no entities loaded)
+    //used to seed and double-check the in-memory totals in PendingTotals
+    @Query("SELECT new com.revature.daos.PendingTotalView(r.user.userId, COUNT(r), COALESCE(SUM(r.amount), 0)) " +
+            "FROM Reimbursement r WHERE r.status = 'pending' GROUP BY r.user.userId")
+    List<PendingTotalView> sumPendingByUser();
+
+    //which of these write-behind claims are in the table already (check ReimbursementIngestion)
+    @Query("SELECT r.ingestSeq FROM Reimbursement r WHERE r.ingestSeq BETWEEN :from AND :to")
+    List<Long> findIngestSeqsBetween(long from, long to);
+
+    //the id a write-behind claim got, once it's in (null until then)
+    @Query("SELECT r.reimbursementId FROM Reimbursement r WHERE r.ingestSeq = :ingestSeq")
+    Integer findIdByIngestSeq(long ingestSeq);
+
+    /*COMPARE-AND-SET on status - only changes the row if it still has the expected status
+     Returns how many rows changed (1 = we won, 0 = missing or someone else changed it first)
+     clearAutomatically so a findByReimbursementId afterwards sees the new status */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Reimbursement r SET r.status = :status WHERE r.reimbursementId = :id AND r.status = :expected")
+    int compareAndSetStatus(int id, String expected, String status);
+
+    /*BULK RESOLVE - one set-based UPDATE instead of a SELECT + UPDATE per reimbursement
+     Only rows that are still pending get changed, and RETURNING tells us which ones did
+     Each returned row is {reimbursement_id, user_id, amount}
+
+     These are native (Postgres) queries, since JPQL has no RETURNING
+     @Transactional because Spring Data runs query methods read-only by default */
+    @Transactional
+    @Query(nativeQuery = true, value = "UPDATE project1.reimbursements SET status = :status " +
+            "WHERE status = 'pending' AND reimbursement_id IN (:ids) " +
+            "RETURNING reimbursement_id, user_id, amount")
+    List<Object[]> resolvePendingByIds(String status, Collection<Integer> ids);
+
+    //same as above, but for the pending reimbursements matching a filter (userId null = any user)
+    //at most "limit" of them (the oldest), so one filter can't lock and resolve the whole table
+    @Transactional
+    @Query(nativeQuery = true, value = "UPDATE project1.reimbursements SET status = :status " +
+            "WHERE status = 'pending' AND reimbursement_id IN (" +
+            "SELECT reimbursement_id FROM project1.reimbursements " +
+            "WHERE status = 'pending' AND (CAST(:userId AS integer) IS NULL OR user_id = :userId) " +
+            "AND amount BETWEEN :lower AND :higher ORDER BY reimbursement_id LIMIT :limit) " +
+            "RETURNING reimbursement_id, user_id, amount")
+    List<Object[]> resolvePendingByFilter(String status, Integer userId, int lower, int higher, int limit);
+
 }
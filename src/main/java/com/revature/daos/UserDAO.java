@@ -1,10 +1,18 @@
 package com.revature.daos;
 
 import com.revature.models.User;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 /*By extending JpaRepository, we get access to various DAO methods that we don't need to write
 
@@ -29,6 +37,28 @@ public interface UserDAO extends JpaRepository<User, Integer> {
 
     List<User> findByRole(String role);
 
+    /*READ MODEL queries - these return UserView projections instead of User entities
+     One SELECT each, no matter how many users (or reimbursements) there are */
+    @Query("SELECT new com.revature.daos.UserView(u.userId, u.firstName, u.lastName, u.username, u.role) " +
+            "FROM User u ORDER BY u.userId")
+    List<UserView> findAllViews();
+
+    //Same as findAllViews, but STREAMS the rows instead of building one big List
+    //(has to be called inside a transaction, and the Stream has to be closed)
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.revature.daos.UserView(u.userId, u.firstName, u.lastName, u.username, u.role) FROM User u")
+    Stream<UserView> streamAllViews();
+
+    //a whole batch of users in ONE query (WHERE username IN (...))
+    @Query("SELECT new com.revature.daos.UserView(u.userId, u.firstName, u.lastName, u.username, u.role) " +
+            "FROM User u WHERE u.username IN :usernames")
+    List<UserView> findViewsByUsernameIn(Collection<String> usernames);
+
+    //one user as a projection (what the UserCache holds onto)
+    @Query("SELECT new com.revature.daos.UserView(u.userId, u.firstName, u.lastName, u.username, u.role) " +
+            "FROM User u WHERE u.username = :username")
+    Optional<UserView> findViewByUsername(String username);
+
     /*NOTE: The method MUST be named findByXyz, where Xyz is the name of a field in User
 
      How does Spring Data know? It's based on the name of the field in the Model
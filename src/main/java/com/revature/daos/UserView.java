@@ -0,0 +1,8 @@
+package com.revature.daos;
+
+/*A PROJECTION of the User entity - just the columns our read endpoints need
+
+ Spring Data fills these in straight from a SELECT (check the @Query methods in UserDAO)
+ so no User entity gets loaded, nothing gets tracked by Hibernate, and the password never leaves the DB */
+public record UserView(int userId, String firstName, String lastName, String username, String role) {
+}
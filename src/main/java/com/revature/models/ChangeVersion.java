@@ -0,0 +1,32 @@
+package com.revature.models;
+
+import jakarta.persistence.*;
+
+//One version number behind our ETags (check ChangeVersions and V6 in db/migration)
+//scopeKey = a user's id (that user's reimbursements), 0 (the user list) or -1 to -64 (stripes of all reimbursements)
+@Entity
+@Table(schema="project1", name = "change_versions")
+public class ChangeVersion {
+
+    @Id //no @GeneratedValue - we pick the key
+    private int scopeKey;
+
+    @Column(nullable = false)
+    private long version;
+
+    public ChangeVersion() {
+    }
+
+    public ChangeVersion(int scopeKey, long version) {
+        this.scopeKey = scopeKey;
+        this.version = version;
+    }
+
+    public int getScopeKey() {
+        return scopeKey;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
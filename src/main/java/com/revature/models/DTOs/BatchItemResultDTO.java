@@ -0,0 +1,54 @@
+package com.revature.models.DTOs;
+
+//The result for one item of a batch - either the new reimbursementId, or the error that item ran into
+//index = the item's position in the array the client sent
+public class BatchItemResultDTO {
+
+    private int index;
+    private Integer reimbursementId;
+    private String error;
+
+    //boilerplate-----------------
+
+    public BatchItemResultDTO() {
+    }
+
+    public BatchItemResultDTO(int index, Integer reimbursementId, String error) {
+        this.index = index;
+        this.reimbursementId = reimbursementId;
+        this.error = error;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Integer getReimbursementId() {
+        return reimbursementId;
+    }
+
+    public void setReimbursementId(Integer reimbursementId) {
+        this.reimbursementId = reimbursementId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchItemResultDTO{" +
+                "index=" + index +
+                ", reimbursementId=" + reimbursementId +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,79 @@
+package com.revature.models.DTOs;
+
+import java.util.List;
+
+/*What an admin sends to resolve a bunch of pending reimbursements at once
+ Either a list of reimbursementIds, OR a filter (username and/or an amount range, like findByAmountBetween)
+ status = what to resolve them to ("approved" or "denied") */
+public class BulkResolveDTO {
+
+    private List<Integer> reimbursementIds;
+    private String username;
+    private Integer minAmount;
+    private Integer maxAmount;
+    private String status;
+
+    //boilerplate----------------
+
+    public BulkResolveDTO() {
+    }
+
+    public BulkResolveDTO(List<Integer> reimbursementIds, String username, Integer minAmount, Integer maxAmount, String status) {
+        this.reimbursementIds = reimbursementIds;
+        this.username = username;
+        this.minAmount = minAmount;
+        this.maxAmount = maxAmount;
+        this.status = status;
+    }
+
+    public List<Integer> getReimbursementIds() {
+        return reimbursementIds;
+    }
+
+    public void setReimbursementIds(List<Integer> reimbursementIds) {
+        this.reimbursementIds = reimbursementIds;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public Integer getMinAmount() {
+        return minAmount;
+    }
+
+    public void setMinAmount(Integer minAmount) {
+        this.minAmount = minAmount;
+    }
+
+    public Integer getMaxAmount() {
+        return maxAmount;
+    }
+
+    public void setMaxAmount(Integer maxAmount) {
+        this.maxAmount = maxAmount;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkResolveDTO{" +
+                "reimbursementIds=" + reimbursementIds +
+                ", username='" + username + '\'' +
+                ", minAmount=" + minAmount +
+                ", maxAmount=" + maxAmount +
+                ", status='" + status + '\'' +
+                '}';
+    }
+}
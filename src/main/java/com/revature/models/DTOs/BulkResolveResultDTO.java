@@ -0,0 +1,45 @@
+package com.revature.models.DTOs;
+
+import java.util.List;
+
+//What we send back after a bulk resolve - the ids that actually changed,
+//and how many requested ids were skipped (not found, or not pending anymore)
+public class BulkResolveResultDTO {
+
+    private List<Integer> resolved;
+    private int skipped;
+
+    //boilerplate-----------------
+
+    public BulkResolveResultDTO() {
+    }
+
+    public BulkResolveResultDTO(List<Integer> resolved, int skipped) {
+        this.resolved = resolved;
+        this.skipped = skipped;
+    }
+
+    public List<Integer> getResolved() {
+        return resolved;
+    }
+
+    public void setResolved(List<Integer> resolved) {
+        this.resolved = resolved;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public void setSkipped(int skipped) {
+        this.skipped = skipped;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkResolveResultDTO{" +
+                "resolved=" + resolved +
+                ", skipped=" + skipped +
+                '}';
+    }
+}
@@ -0,0 +1,53 @@
+package com.revature.models.DTOs;
+
+//Data Transfer Object for one reimbursement claim sent in a batch (just the fields the client fills in)
+public class IncomingReimbursementDTO {
+
+    private String description;
+    private int amount;
+    private String username;
+
+    //boilerplate----------------
+
+    public IncomingReimbursementDTO() {
+    }
+
+    public IncomingReimbursementDTO(String description, int amount, String username) {
+        this.description = description;
+        this.amount = amount;
+        this.username = username;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    public void setAmount(int amount) {
+        this.amount = amount;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    @Override
+    public String toString() {
+        return "IncomingReimbursementDTO{" +
+                "description='" + description + '\'' +
+                ", amount=" + amount +
+                ", username='" + username + '\'' +
+                '}';
+    }
+}
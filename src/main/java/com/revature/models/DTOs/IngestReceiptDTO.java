@@ -0,0 +1,61 @@
+package com.revature.models.DTOs;
+
+//What a client gets back (with a 202 ACCEPTED) when write-behind ingestion is on:
+//the claim is safely on disk, and will be in the DB shortly (as the reimbursement whose ingestSeq = ingestId)
+//GET /reimbursements/ingest/{ingestId} sends one back too, with what happened to it since:
+//status = accepted (not in the DB yet), inserted (reimbursementId is set) or rejected (it can never go in)
+public class IngestReceiptDTO {
+
+    private long ingestId;
+    private String status;
+    private Integer reimbursementId;
+
+    //boilerplate-----------------
+
+    public IngestReceiptDTO() {
+    }
+
+    public IngestReceiptDTO(long ingestId, String status) {
+        this.ingestId = ingestId;
+        this.status = status;
+    }
+
+    public IngestReceiptDTO(long ingestId, String status, Integer reimbursementId) {
+        this.ingestId = ingestId;
+        this.status = status;
+        this.reimbursementId = reimbursementId;
+    }
+
+    public long getIngestId() {
+        return ingestId;
+    }
+
+    public void setIngestId(long ingestId) {
+        this.ingestId = ingestId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Integer getReimbursementId() {
+        return reimbursementId;
+    }
+
+    public void setReimbursementId(Integer reimbursementId) {
+        this.reimbursementId = reimbursementId;
+    }
+
+    @Override
+    public String toString() {
+        return "IngestReceiptDTO{" +
+                "ingestId=" + ingestId +
+                ", status='" + status + '\'' +
+                ", reimbursementId=" + reimbursementId +
+                '}';
+    }
+}
@@ -0,0 +1,81 @@
+package com.revature.models.DTOs;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*The "normalized" shape of a reimbursement list (?shape=normalized)
+
+ Instead of repeating the same user inside every reimbursement, each reimbursement just has a userId,
+ and every user shows up ONCE in the users list. Way smaller for admin lists where a few users
+ have lots of reimbursements each. next is the page cursor (null/left out when there are no more pages) */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class NormalizedReimbursementsDTO {
+
+    private List<OutgoingReimbursementDTO> reimbursements;
+    private List<OutgoingUserDTO> users;
+    private Integer next;
+
+    //boilerplate-----------------
+
+    public NormalizedReimbursementsDTO() {
+    }
+
+    public NormalizedReimbursementsDTO(List<OutgoingReimbursementDTO> reimbursements, List<OutgoingUserDTO> users, Integer next) {
+        this.reimbursements = reimbursements;
+        this.users = users;
+        this.next = next;
+    }
+
+    //Pull the users out of a list of (nested) reimbursements, one entry per user
+    public static NormalizedReimbursementsDTO of(List<OutgoingReimbursementDTO> items, Integer next) {
+        List<OutgoingReimbursementDTO> reimbursements = new ArrayList<>(items.size());
+        Map<Integer, OutgoingUserDTO> users = new LinkedHashMap<>();
+        for (OutgoingReimbursementDTO r : items) {
+            OutgoingUserDTO u = r.getUser();
+            Integer userId = u == null ? r.getUserId() : Integer.valueOf(u.getUserId());
+            if (u != null) {
+                users.putIfAbsent(userId, u);
+            }
+            reimbursements.add(new OutgoingReimbursementDTO(r.getReimbursementId(), r.getDescription(), r.getAmount(),
+                    r.getStatus(), userId, null));
+        }
+        return new NormalizedReimbursementsDTO(reimbursements, new ArrayList<>(users.values()), next);
+    }
+
+    public List<OutgoingReimbursementDTO> getReimbursements() {
+        return reimbursements;
+    }
+
+    public void setReimbursements(List<OutgoingReimbursementDTO> reimbursements) {
+        this.reimbursements = reimbursements;
+    }
+
+    public List<OutgoingUserDTO> getUsers() {
+        return users;
+    }
+
+    public void setUsers(List<OutgoingUserDTO> users) {
+        this.users = users;
+    }
+
+    public Integer getNext() {
+        return next;
+    }
+
+    public void setNext(Integer next) {
+        this.next = next;
+    }
+
+    @Override
+    public String toString() {
+        return "NormalizedReimbursementsDTO{" +
+                "reimbursements=" + reimbursements +
+                ", users=" + users +
+                ", next=" + next +
+                '}';
+    }
+}
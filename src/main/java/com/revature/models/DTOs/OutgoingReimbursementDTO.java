@@ -0,0 +1,105 @@
+package com.revature.models.DTOs;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.revature.config.SparseFields;
+import com.revature.models.Reimbursement;
+
+import java.util.Set;
+
+//What we send back instead of a Reimbursement entity - its User comes along as an OutgoingUserDTO (no password!)
+//In the "normalized" shape, user is left out and only userId is sent (check NormalizedReimbursementsDTO)
+@JsonFilter(SparseFields.REIMBURSEMENT_FILTER)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OutgoingReimbursementDTO {
+
+    //the field names a ?fields= request can ask for
+    public static final Set<String> FIELDS = Set.of("reimbursementId", "description", "amount", "status", "userId", "user");
+
+    private int reimbursementId;
+    private String description;
+    private int amount;
+    private String status;
+    private Integer userId;
+    private OutgoingUserDTO user;
+
+    //boilerplate-----------------
+
+    public OutgoingReimbursementDTO() {
+    }
+
+    public OutgoingReimbursementDTO(int reimbursementId, String description, int amount, String status, Integer userId, OutgoingUserDTO user) {
+        this.reimbursementId = reimbursementId;
+        this.description = description;
+        this.amount = amount;
+        this.status = status;
+        this.userId = userId;
+        this.user = user;
+    }
+
+    //the user has to be loaded already (our DAO methods fetch it with @EntityGraph)
+    public OutgoingReimbursementDTO(Reimbursement r) {
+        this(r.getReimbursementId(), r.getDescription(), r.getAmount(), r.getStatus(), null,
+                r.getUser() == null ? null : new OutgoingUserDTO(r.getUser()));
+    }
+
+    public int getReimbursementId() {
+        return reimbursementId;
+    }
+
+    public void setReimbursementId(int reimbursementId) {
+        this.reimbursementId = reimbursementId;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    public void setAmount(int amount) {
+        this.amount = amount;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Integer userId) {
+        this.userId = userId;
+    }
+
+    public OutgoingUserDTO getUser() {
+        return user;
+    }
+
+    public void setUser(OutgoingUserDTO user) {
+        this.user = user;
+    }
+
+    @Override
+    public String toString() {
+        return "OutgoingReimbursementDTO{" +
+                "reimbursementId=" + reimbursementId +
+                ", description='" + description + '\'' +
+                ", amount=" + amount +
+                ", status='" + status + '\'' +
+                ", userId=" + userId +
+                ", user=" + user +
+                '}';
+    }
+}
@@ -1,10 +1,26 @@
 package com.revature.models.DTOs;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.revature.config.SparseFields;
+import com.revature.daos.UserView;
+import com.revature.models.User;
+
+import java.util.Set;
+
 //Here's another common DTO use case - send users to the front end without password
-//Probably only use this DTO in get all users for the sake of time
+//Every endpoint that sends users back uses this one (login only fills in userId/username/role)
+//@JsonFilter lets a request pick which fields it wants (?fields=userId,username - check SparseFields)
+@JsonFilter(SparseFields.USER_FILTER)
+@JsonInclude(JsonInclude.Include.NON_NULL) //fields we didn't fill in are left out of the JSON
 public class OutgoingUserDTO {
 
+    //the field names a ?fields= request can ask for
+    public static final Set<String> FIELDS = Set.of("userId", "firstName", "lastName", "username", "role");
+
     private int userId;
+    private String firstName;
+    private String lastName;
     private String username;
     private String role;
 
@@ -20,6 +36,20 @@ public class OutgoingUserDTO {
         this.role = role;
     }
 
+    public OutgoingUserDTO(int userId, String firstName, String lastName, String username, String role) {
+        this(userId, username, role);
+        this.firstName = firstName;
+        this.lastName = lastName;
+    }
+
+    public OutgoingUserDTO(UserView v) {
+        this(v.userId(), v.firstName(), v.lastName(), v.username(), v.role());
+    }
+
+    public OutgoingUserDTO(User u) {
+        this(u.getUserId(), u.getFirstName(), u.getLastName(), u.getUsername(), u.getRole());
+    }
+
     public int getUserId() {
         return userId;
     }
@@ -28,6 +58,22 @@ public class OutgoingUserDTO {
         this.userId = userId;
     }
 
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
     public String getUsername() {
         return username;
     }
@@ -48,6 +94,8 @@ public class OutgoingUserDTO {
     public String toString() {
         return "OutgoingUserDTO{" +
                 "userId=" + userId +
+                ", firstName='" + firstName + '\'' +
+                ", lastName='" + lastName + '\'' +
                 ", username='" + username + '\'' +
                 ", role='" + role + '\'' +
                 '}';
@@ -0,0 +1,45 @@
+package com.revature.models.DTOs;
+
+import java.util.List;
+
+//DTO for one page of reimbursements - the items, plus the cursor to send back for the next page
+//next is null when there are no more pages
+public class ReimbursementPageDTO {
+
+    private List<OutgoingReimbursementDTO> items;
+    private Integer next;
+
+    //boilerplate-----------------
+
+    public ReimbursementPageDTO() {
+    }
+
+    public ReimbursementPageDTO(List<OutgoingReimbursementDTO> items, Integer next) {
+        this.items = items;
+        this.next = next;
+    }
+
+    public List<OutgoingReimbursementDTO> getItems() {
+        return items;
+    }
+
+    public void setItems(List<OutgoingReimbursementDTO> items) {
+        this.items = items;
+    }
+
+    public Integer getNext() {
+        return next;
+    }
+
+    public void setNext(Integer next) {
+        this.next = next;
+    }
+
+    @Override
+    public String toString() {
+        return "ReimbursementPageDTO{" +
+                "items=" + items +
+                ", next=" + next +
+                '}';
+    }
+}
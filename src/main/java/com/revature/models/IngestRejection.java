@@ -0,0 +1,66 @@
+package com.revature.models;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+//A write-behind claim that was accepted but could never be inserted (check ReimbursementIngestion and V9 in db/migration)
+//No FK to users on purpose - a deleted user is one of the reasons a claim ends up here
+@Entity
+@Table(schema="project1", name = "ingest_rejections")
+public class IngestRejection {
+
+    @Id //no @GeneratedValue - it's the claim's ingest id
+    private long ingestSeq;
+
+    @Column(nullable = false)
+    private int userId;
+
+    @Column(nullable = false)
+    private int amount;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String description;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String reason;
+
+    @Column(nullable = false)
+    private Instant rejectedAt;
+
+    public IngestRejection() {
+    }
+
+    public IngestRejection(long ingestSeq, int userId, int amount, String description, String reason, Instant rejectedAt) {
+        this.ingestSeq = ingestSeq;
+        this.userId = userId;
+        this.amount = amount;
+        this.description = description;
+        this.reason = reason;
+        this.rejectedAt = rejectedAt;
+    }
+
+    public long getIngestSeq() {
+        return ingestSeq;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public Instant getRejectedAt() {
+        return rejectedAt;
+    }
+}
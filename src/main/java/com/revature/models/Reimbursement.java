@@ -1,15 +1,17 @@
 package com.revature.models;
 
 import jakarta.persistence.*;
-import org.springframework.stereotype.Component;
 
 @Entity //This Class will be a DB table thanks to Spring Data JPA
 @Table(schema="project1",name = "reimbursements") //This lets us change the name of our DB table
-@Component //1 of 4 stereotype annotations. Registers this class as a Spring Bean
 public class Reimbursement {
 
+    /*SEQUENCE instead of IDENTITY - with IDENTITY the DB makes the id during the INSERT,
+     so Hibernate has to send every INSERT on its own to find out the id (no JDBC batching!)
+     With a sequence, Hibernate grabs 50 ids at a time up front, and can batch the INSERTs */
     @Id //This is the primary key field
-    @GeneratedValue(strategy = GenerationType.IDENTITY) //Makes a serial incrementing PK
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reimbursements_seq")
+    @SequenceGenerator(name = "reimbursements_seq", schema = "project1", sequenceName = "reimbursements_seq", allocationSize = 50)
     private int reimbursementId;
 
     @Column(nullable = false)
@@ -21,16 +23,22 @@ public class Reimbursement {
     @Column(nullable = false)
     private String status;
 
+    //Only for claims that came in through the write-behind log (check ReimbursementIngestion) - where in the log
+    //it came from, so a replay after a crash can tell it's already in. null for everything else
+    @Column(unique = true)
+    private Long ingestSeq;
+
 
     /*Primary Key / Foreign Key relationship!! (Many to One)
 
      fetch - defines whether the Dependency (User) is eagerly or lazily loaded
         -eager = loads dependency as soon as the app starts
         -lazy = loads dependency only when it's called
+        We use LAZY - the DAO queries that need the User ask for it with @EntityGraph (a JOIN FETCH)
 
      @JoinColumn - defines the column that will be used to link these tables (PK of User)
         -We have to supply the name of the PK field that this FK is referring to */
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "userId",referencedColumnName = "userId") //this links our FK to the PK in User (has to be the same amount!!!)
     private User user;
 
@@ -79,6 +87,14 @@ public class Reimbursement {
         this.status = status;
     }
 
+    public Long getIngestSeq() {
+        return ingestSeq;
+    }
+
+    public void setIngestSeq(Long ingestSeq) {
+        this.ingestSeq = ingestSeq;
+    }
+
     public User getUser() {
         return user;
     }
@@ -2,11 +2,9 @@ package com.revature.models;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
-import org.springframework.stereotype.Component;
 
 import java.util.List;
 
-@Component //This Class will be registered as a Spring Bean
 @Entity //This Class will be created as a table in the DB (In other words, a DB ENTITY)
 @Table(schema="project1", name = "users") //@Table lets us set properties like table name. THIS IS NOT WHAT MAKES IT A TABLE
 public class User {
@@ -39,10 +37,11 @@ public class User {
      mappedBy: This refers to the @ManyToOne field in Reimbursement that maps this relationship (user)
 
      fetch: refer to the Reimbursement class for info on this guy
+        -LAZY here, otherwise every User query also pulls every one of that User's Reimbursements
 
      cascade: This lets us define what operations cascade down to dependent records\
         -CascadeType.ALL = all operations cascade down to dependent records (update, delete, etc) */
-    @OneToMany(mappedBy = "user", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @OneToMany(mappedBy = "user", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     @JsonIgnore //prevents the circular reference in our JSON responses
     private List<Reimbursement> reimbursements;
 
@@ -0,0 +1,273 @@
+package com.revature.services;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/*An append-only log of status changes, in fixed-size MEMORY-MAPPED segment files
+
+ Every record is the same 24 bytes:
+    [timestamp ms: long][reimbursement id: int][admin user id: int][old status: byte][new status: byte][unused: short][CRC32C: int]
+ so appending is a few puts into mapped memory - no write() call, no fsync, no DB row.
+ The OS writes the pages out in the background (flush() forces it, the owner calls that every so often).
+ A record that's been appended survives a crash of the app (the pages belong to the OS), a power cut can lose
+ the last unflushed bit. It's NOT written together with the DB change it describes, though (check StatusAudit) -
+ so the log can miss a change, it's not a complete record.
+
+ A segment is a file of segmentBytes, pre-sized, named after its number (00000000000000000001.audit, ...).
+ When it's full we roll over to the next one, and the oldest ones past "retain" are deleted.
+ Unused slots are all zeros, and zeros never have a matching CRC - so when a segment is opened again,
+ its records are the ones up to the first bad CRC (which also cuts off a record torn by a crash).
+
+ Timestamps never go backwards (if the clock does, we keep the last one), so a time range scan can
+ binary search inside a segment, and skip whole segments. A scan by reimbursement id reads everything we keep,
+ but that's just comparing ints in memory - no I/O unless the pages were evicted.
+
+ Appends are synchronized (one writer at a time, for a few nanoseconds each).
+ Scans don't lock - they read a segment up to its "count", which is only bumped after the record is written */
+public class AuditLog implements AutoCloseable {
+
+    public static final int RECORD = 24;
+
+    public static final String[] STATUSES = {"pending", "approved", "denied"};
+
+    public record Entry(long timestamp, int reimbursementId, String oldStatus, String newStatus, int adminUserId) {
+    }
+
+    private static final class Segment {
+        final long number;
+        final Path path;
+        final MappedByteBuffer buffer;
+        final int capacity; //in records
+        volatile int count;
+
+        Segment(long number, Path path, MappedByteBuffer buffer) {
+            this.number = number;
+            this.path = path;
+            this.buffer = buffer;
+            this.capacity = buffer.capacity() / RECORD;
+        }
+
+        long timestampAt(int i) {
+            return buffer.getLong(i * RECORD);
+        }
+    }
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final int retain;
+    private final LongSupplier clock;
+
+    //oldest first. Replaced (never changed) under "this", so scans can just grab the current list
+    private volatile List<Segment> segments;
+    private long lastTimestamp;
+
+    public AuditLog(Path dir, long segmentBytes, int retain, LongSupplier clock) {
+        if (segmentBytes < RECORD || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("segmentBytes must be " + RECORD + ".." + Integer.MAX_VALUE);
+        }
+        if (retain < 1) {
+            throw new IllegalArgumentException("Must retain at least 1 segment");
+        }
+        this.dir = dir;
+        this.segmentBytes = segmentBytes - segmentBytes % RECORD; //no half records at the end
+        this.retain = retain;
+        this.clock = clock;
+        try {
+            Files.createDirectories(dir);
+            List<Segment> open = new ArrayList<>();
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path p : files.filter(p -> p.getFileName().toString().endsWith(".audit")).sorted().toList()) {
+                    Segment s = map(p, numberOf(p));
+                    s.count = validRecords(s);
+                    open.add(s);
+                }
+            }
+            if (open.isEmpty()) {
+                open.add(map(pathOf(1), 1));
+            }
+            Segment last = open.getLast();
+            lastTimestamp = last.count == 0 ? 0 : last.timestampAt(last.count - 1);
+            segments = List.copyOf(open);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't open the audit log in " + dir, e);
+        }
+    }
+
+    //Record one status change (timestamped now)
+    public synchronized void append(int reimbursementId, String oldStatus, String newStatus, int adminUserId) {
+        write(reimbursementId, code(oldStatus), code(newStatus), adminUserId);
+    }
+
+    //Record a whole bulk resolve at once - one lock, one timestamp
+    public synchronized void appendAll(List<Integer> reimbursementIds, String oldStatus, String newStatus, int adminUserId) {
+        byte from = code(oldStatus);
+        byte to = code(newStatus);
+        for (int id : reimbursementIds) {
+            write(id, from, to, adminUserId);
+        }
+    }
+
+    private void write(int reimbursementId, byte from, byte to, int adminUserId) {
+        Segment s = segments.getLast();
+        if (s.count == s.capacity) {
+            s = rollOver(s);
+        }
+        lastTimestamp = Math.max(lastTimestamp, clock.getAsLong());
+        int at = s.count * RECORD;
+        ByteBuffer b = s.buffer;
+        b.putLong(at, lastTimestamp).putInt(at + 8, reimbursementId).putInt(at + 12, adminUserId)
+                .put(at + 16, from).put(at + 17, to).putShort(at + 18, (short) 0);
+        b.putInt(at + 20, crc(b, at));
+        s.count++; //volatile - scans see the whole record from here on
+    }
+
+    //Every change to one reimbursement that we still keep, oldest first
+    public List<Entry> byReimbursement(int reimbursementId, int limit) {
+        List<Entry> out = new ArrayList<>();
+        for (Segment s : segments) {
+            int count = s.count;
+            for (int i = 0; i < count && out.size() < limit; i++) {
+                if (s.buffer.getInt(i * RECORD + 8) == reimbursementId) {
+                    out.add(read(s, i));
+                }
+            }
+        }
+        return out;
+    }
+
+    //Every change with from <= timestamp < to, oldest first
+    public List<Entry> between(long from, long to, int limit) {
+        List<Entry> out = new ArrayList<>();
+        for (Segment s : segments) {
+            int count = s.count;
+            if (count == 0 || s.timestampAt(count - 1) < from) {
+                continue;
+            }
+            if (s.timestampAt(0) >= to) {
+                break; //and so does everything after it
+            }
+            for (int i = firstAtOrAfter(s, count, from); i < count && out.size() < limit; i++) {
+                if (s.timestampAt(i) >= to) {
+                    return out;
+                }
+                out.add(read(s, i));
+            }
+            if (out.size() == limit) {
+                break;
+            }
+        }
+        return out;
+    }
+
+    //Ask the OS to write the mapped pages out now (so a power cut can't lose them)
+    public void flush() {
+        for (Segment s : segments) {
+            s.buffer.force();
+        }
+    }
+
+    public long size() {
+        long total = 0;
+        for (Segment s : segments) {
+            total += s.count;
+        }
+        return total;
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    private Segment rollOver(Segment full) {
+        full.buffer.force();
+        try {
+            Segment next = map(pathOf(full.number + 1), full.number + 1);
+            List<Segment> kept = new ArrayList<>(segments);
+            kept.add(next);
+            while (kept.size() > retain) {
+                //a scan that already has the old list can keep reading it (the mapping outlives the file)
+                Files.deleteIfExists(kept.removeFirst().path);
+            }
+            segments = List.copyOf(kept);
+            return next;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't roll the audit log over", e);
+        }
+    }
+
+    private Segment map(Path path, long number) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            //the mapping stays valid after the channel is closed
+            return new Segment(number, path, ch.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes));
+        }
+    }
+
+    private Path pathOf(long number) {
+        return dir.resolve(String.format("%020d.audit", number));
+    }
+
+    private static long numberOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - ".audit".length()));
+    }
+
+    private static int validRecords(Segment s) {
+        int i = 0;
+        while (i < s.capacity && s.buffer.getInt(i * RECORD + 20) == crc(s.buffer, i * RECORD)) {
+            i++;
+        }
+        return i;
+    }
+
+    //the first record in s with timestamp >= from (or count if there isn't one)
+    private static int firstAtOrAfter(Segment s, int count, long from) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (s.timestampAt(mid) < from) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static Entry read(Segment s, int i) {
+        ByteBuffer b = s.buffer;
+        int at = i * RECORD;
+        return new Entry(b.getLong(at), b.getInt(at + 8), STATUSES[b.get(at + 16)], STATUSES[b.get(at + 17)], b.getInt(at + 12));
+    }
+
+    private static byte code(String status) {
+        for (byte i = 0; i < STATUSES.length; i++) {
+            if (STATUSES[i].equals(status)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Invalid status");
+    }
+
+    private static int crc(ByteBuffer b, int at) {
+        CRC32C crc = new CRC32C();
+        crc.update(b.slice(at, RECORD - 4));
+        return (int) crc.getValue();
+    }
+}
@@ -1,11 +1,9 @@
 package com.revature.services;
 
-import com.revature.controllers.AuthController;
 import com.revature.daos.AuthDAO;
 import com.revature.models.DTOs.LoginDTO;
 import com.revature.models.DTOs.OutgoingUserDTO;
 import com.revature.models.User;
-import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -15,13 +13,15 @@ public class AuthService {
     //autowire the DAO
 
     private AuthDAO aDAO;
+    private TokenService tokenService;
 
     @Autowired
-    public AuthService(AuthDAO aDAO) {
+    public AuthService(AuthDAO aDAO, TokenService tokenService) {
         this.aDAO = aDAO;
+        this.tokenService = tokenService;
     }
 
-    public OutgoingUserDTO login(LoginDTO lDTO, HttpSession session){
+    public OutgoingUserDTO login(LoginDTO lDTO){
 
         //Use the DTO data to find a user in the DB (through the DAO)
         User u = aDAO.findByUsernameAndPassword(lDTO.getUsername(), lDTO.getPassword());
@@ -32,28 +32,22 @@ public class AuthService {
             throw new IllegalArgumentException("No user found with those credentials!");
         }
 
-        //If a user is found, login was successful! Initialize our session
-        //Remember we're using the Session that lives on the Controller layer
-        AuthController.session = session;
+        //Process the User into an OutgoingUserDTO and return it!
+        return new OutgoingUserDTO(u.getUserId(), u.getUsername(), u.getRole());
 
-        //Store the User info in the session
-        AuthController.session.setAttribute("userId", u.getUserId());
-        AuthController.session.setAttribute("username", u.getUsername());
-        AuthController.session.setAttribute("role", u.getRole());
+    }
 
-        //Why store all this user info in session attributes?
+    /*Make a signed token holding the user's info - the client sends it back on every request
 
-        /* -It helps store user info that we can use to check if:
+     Why put user info in the token?
+
+        -It helps store user info that we can use to check if:
             -they're logged in
             -their role is appropriate for the functionality they want to access
-            -personalize the app (use their name, etc)
-            -simplify our URLs!
-                ex: use the stored userId in "findBy" methods so we don't need to include it in the URL */
-
-        //Process the User into an OutgoingUserDTO and return it!
-        return new OutgoingUserDTO(u.getUserId(), u.getUsername(), u.getRole());
-
+        -and since it's signed, the server doesn't have to remember anything between requests
+            (no sessions - so any copy of the app can handle any request) */
+    public String issueToken(OutgoingUserDTO u){
+        return tokenService.issue(u.getUserId(), u.getUsername(), u.getRole());
     }
 
-
 }
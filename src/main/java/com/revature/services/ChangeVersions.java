@@ -0,0 +1,162 @@
+package com.revature.services;
+
+import com.revature.daos.ChangeVersionDAO;
+import com.revature.models.ChangeVersion;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*Version numbers behind the ETags on our list endpoints
+
+ Every write bumps the version(s) of what it changed: the user list, or one user's reimbursements.
+ The versions are rows in the change_versions table (check V6 in db/migration), NOT counters in memory -
+ with more than one node behind the load balancer, a write on node A has to change the ETag node B hands out,
+ or B would answer 304 NOT MODIFIED to a client whose copy is out of date.
+    -one user's reimbursements = that user's row
+    -all reimbursements = the SUM of rows -1 to -STRIPES (a reimbursement change bumps its user's row,
+     and the stripe row that user falls in: -1 - userId % STRIPES)
+    -the user list = row 0
+ So checking a client's If-None-Match is ONE primary key lookup (or one small range, for all reimbursements),
+ instead of loading the rows and turning them into JSON.
+
+ Why stripes and not one row for all reimbursements: every reimbursement write in the cluster would update that
+ one row, so they'd all queue up on its lock - one submission at a time, whatever the pool sizes say.
+ Spread over STRIPES rows, two writes only wait on each other if their users share a stripe (1 in STRIPES).
+ A SUM over the stripes still goes up with every commit, in whatever order the writers commit
+ (a MAX of per-user versions wouldn't: a change that commits after a newer-numbered one wouldn't move it).
+
+ The bumps are made in the same transaction as the change itself, right before it commits
+ (so the row locks are only held for a moment, and a bulk change bumps each version once, in key order -
+ two bulk changes can't deadlock on them). So every write that bumps a version must run in a transaction
+ (they're all @Transactional service methods) - the new ETag then commits or rolls back together with the change. Readers read the version BEFORE the data (in the same transaction,
+ so from the same DB if there's a replica) - an ETag can be older than the data it's sent with
+ (harmless, the next poll gets a 200), but never newer */
+@Component
+public class ChangeVersions implements InitializingBean {
+
+    //the row for the user list (user ids start at 1)
+    static final int USERS = 0;
+
+    //rows -1 to -STRIPES add up to the version of every user's reimbursements at once (GET /reimbursements/all)
+    static final int STRIPES = 64;
+
+    private final ChangeVersionDAO dao;
+
+    @Autowired
+    public ChangeVersions(ChangeVersionDAO dao) {
+        this.dao = dao;
+    }
+
+    //V6-V8 make rows 0 and -1 to -STRIPES - this is for DBs built from the entities instead (the H2 one in the tests)
+    @Override
+    public void afterPropertiesSet() {
+        List<Integer> keys = new ArrayList<>();
+        for (int scopeKey = -STRIPES; scopeKey <= USERS; scopeKey++) {
+            keys.add(scopeKey);
+        }
+        for (ChangeVersion existing : dao.findAllById(keys)) {
+            keys.remove(Integer.valueOf(existing.getScopeKey()));
+        }
+        for (int scopeKey : keys) {
+            dao.save(new ChangeVersion(scopeKey, 0));
+        }
+    }
+
+    public String usersETag() {
+        return "\"u" + versionOf(USERS) + "\"";
+    }
+
+    public String reimbursementsETag() {
+        return "\"r" + dao.sumOfVersions(-STRIPES, -1) + "\"";
+    }
+
+    public String userReimbursementsETag(int userId) {
+        return "\"r" + userId + "." + versionOf(userId) + "\"";
+    }
+
+    //a user was added (their reimbursements start at version 0)
+    public void userAdded(int userId) {
+        Map<Integer, Long> bumps = pending();
+        bumps.merge(USERS, 1L, Long::sum);
+        bumps.putIfAbsent(userId, 0L);
+    }
+
+    //one of this user's reimbursements was added or changed (which also changes the list of ALL reimbursements)
+    //(a stripe only needs to go up once per transaction, however many of its users it touched)
+    public void reimbursementsChanged(int userId) {
+        Map<Integer, Long> bumps = pending();
+        bumps.merge(userId, 1L, Long::sum);
+        bumps.putIfAbsent(stripeOf(userId), 1L);
+    }
+
+    //A user was deleted (along with their reimbursements)
+    public void userRemoved(int userId) {
+        Map<Integer, Long> bumps = pending();
+        bumps.merge(USERS, 1L, Long::sum);
+        bumps.merge(userId, 1L, Long::sum);
+        bumps.putIfAbsent(stripeOf(userId), 1L);
+    }
+
+    static int stripeOf(int userId) {
+        return -1 - Math.floorMod(userId, STRIPES);
+    }
+
+    private long versionOf(int scopeKey) {
+        Long v = dao.versionOf(scopeKey);
+        return v == null ? 0 : v;
+    }
+
+    /*The bumps waiting for the current transaction to commit
+     Bound to the transaction like Spring binds its connections - set aside while an inner REQUIRES_NEW one runs */
+    private Map<Integer, Long> pending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            //a bump in a transaction of its own could fail after the change committed - and the ETag would never change
+            throw new IllegalStateException("Versions can only be bumped inside the transaction making the change");
+        }
+        @SuppressWarnings("unchecked")
+        Map<Integer, Long> bumps = (Map<Integer, Long>) TransactionSynchronizationManager.getResource(this);
+        if (bumps == null) {
+            Map<Integer, Long> fresh = new TreeMap<>(); //sorted = rows get locked in key order
+            TransactionSynchronizationManager.bindResource(this, fresh);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void suspend() {
+                    TransactionSynchronizationManager.unbindResource(ChangeVersions.this);
+                }
+
+                @Override
+                public void resume() {
+                    TransactionSynchronizationManager.bindResource(ChangeVersions.this, fresh);
+                }
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    apply(fresh);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ChangeVersions.this);
+                }
+            });
+            bumps = fresh;
+        }
+        return bumps;
+    }
+
+    //(inside a transaction) one UPDATE per version, or an INSERT for a key that has no row yet
+    private void apply(Map<Integer, Long> bumps) {
+        bumps.forEach((scopeKey, by) -> {
+            if (dao.bump(scopeKey, by) == 0) {
+                dao.save(new ChangeVersion(scopeKey, by));
+            }
+        });
+    }
+}
@@ -0,0 +1,171 @@
+package com.revature.services;
+
+import com.revature.config.ReadRouting;
+import com.revature.daos.PendingTotalView;
+import com.revature.daos.ReimbursementDAO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*Keeps a running count and sum of each user's PENDING reimbursements in memory
+
+ Instead of loading every pending Reimbursement and adding them up on each request,
+ ReimbursementService nudges these totals whenever a reimbursement is added or changes status.
+ Reading a total is then just a map lookup (no DB, no entities)
+
+ A scheduled reconcile() job compares the totals against a SUM query, and fixes any drift
+ (both SUM queries always read the primary - a lagging replica would look like drift)
+
+ A change is in the DB as soon as its transaction commits, but only reaches these totals a moment later (afterCommit).
+ So a user's totals are only corrected if NOTHING happened to them while reconcile() ran: no change applied
+ since the query started (their stamp is older), and no committed-or-committing change still on its way (inFlight).
+ Otherwise that user is left alone until the next run - fixing them could count the same change twice
+
+ These totals live in THIS node's memory, and only its own writes adjust them. With more than one node behind the load
+ balancer, a claim added or resolved on node A only reaches node B's totals at B's next reconcile() - so
+ GET /reimbursements/amount/{username} can be up to reconcile-ms behind for changes made elsewhere.
+ That's why reconcile-ms is short, and why a correction is logged at INFO (it's the normal way those changes arrive) */
+@Component
+public class PendingTotals implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PendingTotals.class);
+
+    //one user's totals, and the value of "changes" when they last changed
+    //Immutable, so we can swap them atomically with ConcurrentHashMap.merge()/compute()
+    public record Totals(long count, long sum, long stamp) {
+        static final Totals EMPTY = new Totals(0, 0, 0);
+    }
+
+    private final ReimbursementDAO rDAO;
+    private final ReadRouting readRouting;
+
+    //userId -> Totals (users with nothing pending usually aren't in the map - but ones whose count just went
+    //back to 0 keep a (0, 0) entry until the next reconcile(), so it can still see when they last changed)
+    private final ConcurrentHashMap<Integer, Totals> totals = new ConcurrentHashMap<>();
+
+    //bumped on every change (the new value is the change's stamp)
+    private final AtomicLong changes = new AtomicLong();
+
+    //userId -> how many adjustments are waiting for their transaction to finish
+    private final ConcurrentHashMap<Integer, Integer> inFlight = new ConcurrentHashMap<>();
+
+    @Autowired
+    public PendingTotals(ReimbursementDAO rDAO, ReadRouting readRouting) {
+        this.rDAO = rDAO;
+        this.readRouting = readRouting;
+    }
+
+    //Load the totals from the DB once, when the app starts up
+    @Override
+    public void afterPropertiesSet() {
+        for (PendingTotalView row : sumPendingByUser()) {
+            totals.put(row.userId(), new Totals(row.count(), row.sum(), 0));
+        }
+        log.info("Loaded pending totals for {} users", totals.size());
+    }
+
+    public Totals get(int userId) {
+        return totals.getOrDefault(userId, Totals.EMPTY);
+    }
+
+    /*Adjust a user's totals (ex: +1 and +amount for a new pending reimbursement)
+     If we're inside a transaction, wait until it commits - a rolled back change shouldn't count
+     (until then the user is "in flight", so reconcile() won't touch them) */
+    public void adjust(int userId, int countDelta, long amountDelta) {
+        whenCommitted(userId, () -> apply(userId, countDelta, amountDelta));
+    }
+
+    //A user was deleted (along with their reimbursements) - also only once that commits, like adjust()
+    //a (0, 0) entry rather than none, so a reconcile() that queried before the delete can't bring their old totals back
+    public void remove(int userId) {
+        whenCommitted(userId, () -> totals.put(userId, new Totals(0, 0, changes.incrementAndGet())));
+    }
+
+    //run the change once the current transaction commits (right away if there isn't one)
+    private void whenCommitted(int userId, Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            inFlight.merge(userId, 1, Integer::sum);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    try {
+                        if (status == STATUS_COMMITTED) {
+                            change.run();
+                        }
+                    } finally {
+                        inFlight.computeIfPresent(userId, (id, n) -> n == 1 ? null : n - 1);
+                    }
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    private void apply(int userId, int countDelta, long amountDelta) {
+        long stamp = changes.incrementAndGet();
+        totals.merge(userId, new Totals(countDelta, amountDelta, stamp),
+                (old, delta) -> new Totals(old.count() + delta.count(), old.sum() + delta.sum(), stamp));
+    }
+
+    /*RECONCILIATION JOB - checks the in-memory totals against what the DB says, and fixes the users that drifted
+     (or were changed by another node)
+     Users that changed while the query ran are skipped (check the class comment), and checked again next run
+     Returns how many users were corrected */
+    @Scheduled(initialDelayString = "${reimbursements.pending-totals.reconcile-ms:10000}",
+            fixedDelayString = "${reimbursements.pending-totals.reconcile-ms:10000}")
+    public int reconcile() {
+        long before = changes.get();
+
+        Map<Integer, Totals> expected = new HashMap<>();
+        for (PendingTotalView row : sumPendingByUser()) {
+            expected.put(row.userId(), new Totals(row.count(), row.sum(), 0));
+        }
+        //users we have totals for, but the DB says have nothing pending
+        totals.forEach((userId, t) -> {
+            if (t.count() != 0 || t.sum() != 0) {
+                expected.putIfAbsent(userId, Totals.EMPTY);
+            }
+        });
+
+        int[] corrected = {0};
+        expected.forEach((userId, t) -> totals.compute(userId, (id, current) -> {
+            Totals now = current == null ? Totals.EMPTY : current;
+            if (now.count() == t.count() && now.sum() == t.sum()) {
+                return current; //no drift
+            }
+            if (now.stamp() > before || inFlight.containsKey(id)) {
+                return current; //changed while we were querying, or a change is on its way - next run
+            }
+            corrected[0]++;
+            return new Totals(t.count(), t.sum(), now.stamp());
+        }));
+
+        //(0, 0) entries nothing touched since before the query aren't needed anymore (keeps the map small)
+        totals.forEach((userId, t) -> {
+            if (t.count() == 0 && t.sum() == 0 && t.stamp() <= before && !inFlight.containsKey(userId)) {
+                totals.remove(userId, t);
+            }
+        });
+
+        if (corrected[0] > 0) {
+            log.info("Pending totals differed from the DB for {} users (changes made on other nodes, or drift), corrected", corrected[0]);
+        }
+        return corrected[0];
+    }
+
+    private List<PendingTotalView> sumPendingByUser() {
+        return readRouting.onPrimary(rDAO::sumPendingByUser);
+    }
+}
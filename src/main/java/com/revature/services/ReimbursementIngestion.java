@@ -0,0 +1,250 @@
+package com.revature.services;
+
+import com.revature.config.ReadRouting;
+import com.revature.daos.IngestRejectionDAO;
+import com.revature.daos.ReimbursementDAO;
+import com.revature.daos.UserDAO;
+import com.revature.models.IngestRejection;
+import com.revature.models.Reimbursement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*WRITE-BEHIND for new reimbursements (only when reimbursements.ingest.async=true)
+
+ submit() writes the claim to a SegmentedLog on local disk and returns as soon as it's fsync'd -
+ the caller gets a 202 ACCEPTED without waiting for the DB at all. So a slow (or briefly down) DB
+ doesn't make submissions slow, it just makes the backlog grow for a bit.
+
+ One background thread drains the log into the reimbursements table, up to batch-size rows per transaction
+ (one multi-row INSERT batch instead of thousands of single ones), then checkpoints the log.
+ If the DB is down it keeps retrying the same batch, backing off up to 5 seconds between tries.
+
+ After a crash, everything after the checkpoint is read again. Each row remembers where it came from
+ in its ingest_seq column (this node's id + the log seq, unique), so rows that DID make it in before the crash
+ are skipped instead of inserted twice.
+ A claim that can never go in (ex: its user was deleted meanwhile) can't be allowed to block the rest - it's moved
+ to the ingest_rejections table instead (the DEAD LETTERS, check V9), where GET /reimbursements/ingest/{ingestId}
+ finds it, and counted in the reimbursements.ingest.rejected metric. A replay skips the ones already there too */
+@Component
+public class ReimbursementIngestion implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ReimbursementIngestion.class);
+
+    private static final long MAX_BACKOFF_MS = 5000;
+
+    private final boolean enabled;
+    private final Path dir;
+    private final long segmentBytes;
+    private final int batchSize;
+    private final long nodeBits; //the node id, already shifted into the top of the ingest_seq
+
+    private final ReimbursementDAO rDAO;
+    private final UserDAO uDAO;
+    private final IngestRejectionDAO rejectionDAO;
+    private final PendingTotals pendingTotals;
+    private final ChangeVersions changeVersions;
+    private final ReadRouting readRouting;
+    private final TransactionTemplate tx;
+
+    private SegmentedLog segments;
+    private Thread writer;
+    private volatile boolean running;
+    private final Object wakeUp = new Object();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @Autowired
+    public ReimbursementIngestion(@Value("${reimbursements.ingest.async:false}") boolean enabled,
+                                  @Value("${reimbursements.ingest.dir:data/ingest}") String dir,
+                                  @Value("${reimbursements.ingest.segment-bytes:67108864}") long segmentBytes,
+                                  @Value("${reimbursements.ingest.batch-size:500}") int batchSize,
+                                  @Value("${reimbursements.ingest.node-id:0}") int nodeId,
+                                  ReimbursementDAO rDAO, UserDAO uDAO, IngestRejectionDAO rejectionDAO, PendingTotals pendingTotals,
+                                  ChangeVersions changeVersions, ReadRouting readRouting,
+                                  PlatformTransactionManager txManager) {
+        if (nodeId < 0 || nodeId > 0x7FFF) {
+            throw new IllegalArgumentException("reimbursements.ingest.node-id must be 0.." + 0x7FFF);
+        }
+        this.enabled = enabled;
+        this.dir = Path.of(dir);
+        this.segmentBytes = segmentBytes;
+        this.batchSize = batchSize;
+        this.nodeBits = (long) nodeId << 48;
+        this.rDAO = rDAO;
+        this.uDAO = uDAO;
+        this.rejectionDAO = rejectionDAO;
+        this.pendingTotals = pendingTotals;
+        this.changeVersions = changeVersions;
+        this.readRouting = readRouting;
+        this.tx = new TransactionTemplate(txManager);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    //Open the log and start draining it (which replays whatever a crash left behind)
+    @Override
+    public void afterPropertiesSet() {
+        if (!enabled) {
+            return;
+        }
+        segments = new SegmentedLog(dir, segmentBytes);
+        log.info("Write-behind ingestion on, log in {} ({} claims to replay)", dir.toAbsolutePath(), segments.backlog());
+        running = true;
+        writer = new Thread(this::drain, "reimbursement-ingest");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    //Durably accept a claim. Returns its ingest id once it's safely on disk (it reaches the DB a little later)
+    public long submit(String description, int amount, int userId) {
+        byte[] text = description.getBytes(StandardCharsets.UTF_8);
+        byte[] payload = ByteBuffer.allocate(8 + text.length).putInt(userId).putInt(amount).put(text).array();
+        long seq = segments.append(payload);
+        synchronized (wakeUp) {
+            wakeUp.notify();
+        }
+        return nodeBits | seq;
+    }
+
+    //claims accepted but not in the DB yet
+    public long backlog() {
+        return enabled ? segments.backlog() : 0;
+    }
+
+    //claims this node moved to the dead letters since it started
+    public long rejectedCount() {
+        return rejected.get();
+    }
+
+    //true if the claim with this ingest id could never be inserted (on any node)
+    public boolean isRejected(long ingestId) {
+        return rejectionDAO.existsById(ingestId);
+    }
+
+    private void drain() {
+        List<SegmentedLog.Entry> batch = List.of();
+        long backoff = 100;
+        while (running) {
+            try {
+                if (batch.isEmpty()) {
+                    batch = segments.poll(batchSize);
+                    if (batch.isEmpty()) {
+                        synchronized (wakeUp) {
+                            if (segments.backlog() == 0) {
+                                wakeUp.wait(100);
+                            }
+                        }
+                        continue;
+                    }
+                }
+                insert(batch);
+                segments.checkpoint(batch.getLast().seq());
+                batch = List.of();
+                backoff = 100;
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                //DB down, pool exhausted... keep the batch, and try it again in a bit
+                log.warn("Couldn't write {} claims to the DB, retrying in {} ms: {}", batch.size(), backoff, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+            }
+        }
+    }
+
+    private void insert(List<SegmentedLog.Entry> batch) {
+        try {
+            tx.executeWithoutResult(status -> insertAll(batch));
+        } catch (DataIntegrityViolationException e) {
+            //one bad claim fails the whole batch - go one by one, so only the bad ones get dropped
+            for (SegmentedLog.Entry entry : batch) {
+                try {
+                    tx.executeWithoutResult(status -> insertAll(List.of(entry)));
+                } catch (DataIntegrityViolationException bad) {
+                    reject(entry, bad);
+                }
+            }
+        }
+    }
+
+    //move a claim that can't be inserted to the dead letters (if even that fails, the batch is retried like any DB error)
+    private void reject(SegmentedLog.Entry entry, DataIntegrityViolationException why) {
+        long ingestSeq = nodeBits | entry.seq();
+        ByteBuffer payload = ByteBuffer.wrap(entry.payload());
+        int userId = payload.getInt();
+        int amount = payload.getInt();
+        String description = StandardCharsets.UTF_8.decode(payload).toString();
+        String reason = why.getMostSpecificCause().getMessage();
+        tx.executeWithoutResult(status -> rejectionDAO.save(
+                new IngestRejection(ingestSeq, userId, amount, description, reason == null ? "unknown" : reason, Instant.now())));
+        rejected.incrementAndGet();
+        log.error("Claim {} can't be inserted, moved it to ingest_rejections: {}", ingestSeq, reason);
+    }
+
+    //(inside a transaction) insert the claims that aren't in the DB already
+    private void insertAll(List<SegmentedLog.Entry> batch) {
+        long from = nodeBits | batch.getFirst().seq();
+        long to = nodeBits | batch.getLast().seq();
+        Set<Long> done = new HashSet<>(readRouting.onPrimary(() -> rDAO.findIngestSeqsBetween(from, to)));
+        done.addAll(readRouting.onPrimary(() -> rejectionDAO.findIngestSeqsBetween(from, to)));
+        List<Reimbursement> rows = new ArrayList<>(batch.size());
+        for (SegmentedLog.Entry entry : batch) {
+            long ingestSeq = nodeBits | entry.seq();
+            if (done.contains(ingestSeq)) {
+                continue; //went in (or was rejected) before a crash, just never got checkpointed
+            }
+            ByteBuffer payload = ByteBuffer.wrap(entry.payload());
+            int userId = payload.getInt();
+            int amount = payload.getInt();
+            String description = StandardCharsets.UTF_8.decode(payload).toString();
+            //just a reference - Hibernate only needs the user's id for the FK
+            Reimbursement r = new Reimbursement(description, amount, uDAO.getReferenceById(userId));
+            r.setIngestSeq(ingestSeq);
+            rows.add(r);
+        }
+        rDAO.saveAll(rows);
+        rDAO.flush(); //so a bad row fails HERE (where insert() can catch it), not at commit
+
+        //same bookkeeping as addReimbursement (these all wait for the commit)
+        for (Reimbursement r : rows) {
+            int userId = r.getUser().getUserId();
+            pendingTotals.adjust(userId, 1, r.getAmount());
+            changeVersions.reimbursementsChanged(userId);
+            readRouting.wrote(userId);
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        writer.interrupt();
+        writer.join(5000);
+        segments.close();
+    }
+}
@@ -2,31 +2,77 @@ package com.revature.services;
 
 //Check UserService for general notes on Services
 
+import com.revature.config.ReadRouting;
 import com.revature.daos.ReimbursementDAO;
 import com.revature.daos.UserDAO;
+import com.revature.daos.UserView;
+import com.revature.models.DTOs.BatchItemResultDTO;
+import com.revature.models.DTOs.BulkResolveDTO;
+import com.revature.models.DTOs.BulkResolveResultDTO;
+import com.revature.models.DTOs.IncomingReimbursementDTO;
+import com.revature.models.DTOs.IngestReceiptDTO;
+import com.revature.models.DTOs.OutgoingReimbursementDTO;
+import com.revature.models.DTOs.ReimbursementPageDTO;
 import com.revature.models.Reimbursement;
 import com.revature.models.User;
+import jakarta.persistence.EntityManager;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 @Service //Makes a class a bean. Stereotype annotation.
 public class ReimbursementService {
 
+    //the most reimbursements we'll ever send back in one page
+    public static final int MAX_PAGE_SIZE = 500;
+
+    //the most reimbursements we'll accept in one batch submission
+    public static final int MAX_BATCH_SIZE = 5000;
+
+    //how many matches a search ranks (the newest ones, check ReimbursementDAO.searchDescriptions) - so also how deep
+    //its pages go. Ranking costs the same on every page (all the candidates, every time), so this is what bounds it
+    public static final int MAX_SEARCH_RESULTS = 10_000;
+
     //autowire the ReimbursementDAO with constructor injection so we can use the ReimbursementDAO methods
     private ReimbursementDAO rDAO;
-    private UserDAO uDAO; //we also need some UserDAO methods!
+    private UserDAO uDAO; //for looking up a whole batch of users at once
+    private UserCache userCache; //turns usernames into Users (without a DB trip, most of the time)
+    private PendingTotals pendingTotals; //running per-user pending totals (check the class for details)
+    private ChangeVersions changeVersions; //versions behind the ETags on the list endpoints
+    private ReadRouting readRouting; //read replica routing - remembers who just wrote, so they read their own writes
+    private ReimbursementIngestion ingestion; //write-behind log for new claims (when it's turned on)
+    private StatusAudit statusAudit; //history of every status change (who, from, to, when)
+    private EntityManager entityManager; //to clear out entities a native bulk UPDATE made stale
 
     @Autowired
-    public ReimbursementService(ReimbursementDAO rDAO, UserDAO uDAO) {
+    public ReimbursementService(ReimbursementDAO rDAO, UserDAO uDAO, UserCache userCache, PendingTotals pendingTotals,
+                                ChangeVersions changeVersions, ReadRouting readRouting, ReimbursementIngestion ingestion,
+                                StatusAudit statusAudit, EntityManager entityManager) {
         this.rDAO = rDAO;
         this.uDAO = uDAO;
+        this.userCache = userCache;
+        this.pendingTotals = pendingTotals;
+        this.changeVersions = changeVersions;
+        this.readRouting = readRouting;
+        this.ingestion = ingestion;
+        this.statusAudit = statusAudit;
+        this.entityManager = entityManager;
     }
 
     //This method takes in a new Reimbursement object and inserts it into the DB
+    //(one transaction, so the pending total and the ETag version change when the row commits - not a moment later)
+    @Transactional
     public Reimbursement addReimbursement(String description, int amount, String username) {
 
         //Another important role of the Service layer: data processing -
@@ -37,82 +83,353 @@ public class ReimbursementService {
         //user will be set with the userId in the DTO
         Reimbursement newReimbursement = new Reimbursement(description, amount, null);
 
-        //Use the UserDAO to get a User by id
-        Optional<User> u = Optional.ofNullable(uDAO.findByUsername(username).getFirst());
+        //Use the UserCache to get a User by username (it throws if there's no such user)
+        User u = userCache.getUser(username);
 
-        /*findById returns an OPTIONAL... What does that mean?
-         it will either hold the value requested, or it won't. This helps us avoid NullPointerExc.
-         BECAUSE... we can't access the data if we don't use the .get() method
-         Check out how it helps us write error handling functionality: */
-        if (u.isEmpty()) {
-            throw new IllegalArgumentException("No user found with username: " + newReimbursement.getUser().getUsername());
-        } else {
-            //set the user object in the new Reimbursement
-            newReimbursement.setUser(u.get()); //.get() is what extracts the value from the Optional
-            //send the Reimbursement to the DAO
-            return rDAO.save(newReimbursement);
+        //set the user object in the new Reimbursement
+        newReimbursement.setUser(u);
+        //send the Reimbursement to the DAO
+        Reimbursement saved = rDAO.save(newReimbursement);
+        //new reimbursements start out pending, so they count towards the user's pending total
+        pendingTotals.adjust(u.getUserId(), 1, saved.getAmount());
+        changeVersions.reimbursementsChanged(u.getUserId());
+        //their next few reads go to the primary (the replica might not have this row yet)
+        readRouting.wrote(u.getUserId());
+        return saved;
+    }
+
+    //true = new claims go through submitReimbursement (write-behind) instead of addReimbursement
+    public boolean isWriteBehind() {
+        return ingestion.isEnabled();
+    }
+
+    /*WRITE-BEHIND version of addReimbursement (check ReimbursementIngestion)
+     The claim is checked now (we can't report errors to anyone later), saved to the local log,
+     and the returned ingest id becomes its ingestSeq once the background writer puts it in the DB */
+    public long submitReimbursement(String description, int amount, String username) {
+        if (description == null || description.isBlank()) {
+            throw new IllegalArgumentException("Description cannot be empty");
+        }
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be greater than 0");
+        }
+        return ingestion.submit(description, amount, userCache.getUserId(username));
+    }
+
+    /*What happened to a write-behind claim: in the DB yet, rejected (check ReimbursementIngestion), or still on its way
+     Answers the same on every node - both live in the DB. An id no node ever handed out also comes back as accepted */
+    @Transactional(readOnly = true)
+    public IngestReceiptDTO getIngestStatus(long ingestId) {
+        Integer id = rDAO.findIdByIngestSeq(ingestId);
+        if (id != null) {
+            return new IngestReceiptDTO(ingestId, "inserted", id);
+        }
+        return new IngestReceiptDTO(ingestId, ingestion.isRejected(ingestId) ? "rejected" : "accepted");
+    }
+
+    /*BATCH version of addReimbursement (for bulk uploads, like month-end expenses)
+
+     -every user in the batch is looked up in ONE query
+     -items with a bad user/description/amount are skipped and reported, the rest get inserted
+     -saveAll inside one transaction lets Hibernate send the INSERTs as JDBC batches
+     Returns one result per item, in the same order they were sent */
+    @Transactional
+    public List<BatchItemResultDTO> addReimbursements(List<IncomingReimbursementDTO> claims) {
+        if (claims == null || claims.isEmpty()) {
+            throw new IllegalArgumentException("Batch cannot be empty");
+        }
+        if (claims.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch cannot have more than " + MAX_BATCH_SIZE + " reimbursements");
+        }
+
+        //one query for every distinct username in the batch
+        Set<String> usernames = new HashSet<>();
+        for (IncomingReimbursementDTO c : claims) {
+            if (c != null && c.getUsername() != null) {
+                usernames.add(c.getUsername());
+            }
+        }
+        Map<String, User> users = new HashMap<>();
+        for (UserView v : uDAO.findViewsByUsernameIn(usernames)) {
+            users.put(v.username(), UserCache.toUser(v));
+            userCache.put(v); //while we have them, warm up the cache
+        }
+
+        //validate every item, and build Reimbursements for the good ones
+        BatchItemResultDTO[] results = new BatchItemResultDTO[claims.size()];
+        List<Reimbursement> toSave = new ArrayList<>();
+        List<Integer> toSaveIndexes = new ArrayList<>();
+        for (int i = 0; i < claims.size(); i++) {
+            IncomingReimbursementDTO c = claims.get(i);
+            String error = null;
+            if (c == null) {
+                error = "Reimbursement cannot be empty";
+            } else if (c.getDescription() == null || c.getDescription().isBlank()) {
+                error = "Description cannot be empty";
+            } else if (c.getAmount() <= 0) {
+                error = "Amount must be greater than 0";
+            } else if (!users.containsKey(c.getUsername())) {
+                error = "No user found with username: " + c.getUsername();
+            }
+
+            if (error != null) {
+                results[i] = new BatchItemResultDTO(i, null, error);
+            } else {
+                toSave.add(new Reimbursement(c.getDescription(), c.getAmount(), users.get(c.getUsername())));
+                toSaveIndexes.add(i);
+            }
+        }
+
+        //ids come from the sequence as soon as they're saved, the INSERTs get batched at flush/commit
+        List<Reimbursement> saved = rDAO.saveAll(toSave);
+
+        Map<Integer, long[]> pendingDeltas = new HashMap<>();
+        for (int j = 0; j < saved.size(); j++) {
+            Reimbursement r = saved.get(j);
+            int index = toSaveIndexes.get(j);
+            results[index] = new BatchItemResultDTO(index, r.getReimbursementId(), null);
+            long[] delta = pendingDeltas.computeIfAbsent(r.getUser().getUserId(), id -> new long[2]);
+            delta[0]++;
+            delta[1] += r.getAmount();
         }
+        pendingDeltas.forEach((userId, delta) -> {
+            pendingTotals.adjust(userId, (int) delta[0], delta[1]);
+            changeVersions.reimbursementsChanged(userId);
+            readRouting.wrote(userId);
+        });
+
+        return Arrays.asList(results);
     }
 
+    /*Change a reimbursement's status - but only if it's still in the status the admin saw ("expected")
+
+     This is a COMPARE-AND-SET done by the DB: UPDATE ... WHERE id = ? AND status = expected
+     If two admins resolve the same claim at once, only the first UPDATE matches a row.
+     The second one changes nothing, and gets a StatusConflictException (409 CONFLICT) instead of
+     silently overwriting the first admin's decision. No locks are held while we read the row
+     adminUserId = who did it (for the StatusAudit) */
     @Transactional
-    public Reimbursement resolveReimbursement(int id, String status) {
-        if (!(status.equals("pending") || status.equals("approved") || status.equals("denied"))) {
+    public Reimbursement resolveReimbursement(int id, String status, String expected, int adminUserId) {
+        if (!isValidStatus(status) || !isValidStatus(expected)) {
             throw new IllegalArgumentException("Invalid status");
         }
 
+        if (rDAO.compareAndSetStatus(id, expected, status) == 0) {
+            //nothing changed - either the reimbursement doesn't exist, or someone else got there first
+            if (!rDAO.existsById(id)) {
+                throw new IllegalArgumentException("No reimbursement found with id: " + id);
+            }
+            throw new StatusConflictException("Reimbursement " + id + " is no longer " + expected);
+        }
+
         Reimbursement r = rDAO.findByReimbursementId(id);
 
-        if (r == null) {
-            throw new IllegalArgumentException("No reimbursement found with id: " + id);
-        } else {
-            r.setStatus(status);
-            return r;
+        //keep the pending totals in sync if the reimbursement moved in or out of "pending"
+        boolean wasPending = expected.equals("pending");
+        boolean isPending = status.equals("pending");
+        if (wasPending != isPending) {
+            int sign = isPending ? 1 : -1;
+            pendingTotals.adjust(r.getUser().getUserId(), sign, (long) sign * r.getAmount());
         }
+        changeVersions.reimbursementsChanged(r.getUser().getUserId());
+        statusAudit.changed(id, expected, status, adminUserId);
+        return r;
     }
 
+    private boolean isValidStatus(String status) {
+        return "pending".equals(status) || "approved".equals(status) || "denied".equals(status);
+    }
 
+    /*The list endpoints behind their ETags (check ChangeVersions) - the version is read BEFORE the data, in the same
+     read-only transaction (so both come from the same DB, and the ETag is never newer than the data)
+     notModified gets the ETag (the controller passes WebRequest.checkNotModified) - if it says the client's copy
+     is still current, we return null without loading anything
+     The user one needs their id, but that comes from the UserCache (so usually just the one version lookup) */
+    @Transactional(readOnly = true)
+    public List<OutgoingReimbursementDTO> getUserReimbursements(String username, boolean pendingOnly, Predicate<String> notModified) {
+        if (notModified.test(changeVersions.userReimbursementsETag(userCache.getUserId(username)))) {
+            return null;
+        }
+        return pendingOnly ? getPendingUserReimbursements(username) : getUserReimbursements(username);
+    }
 
-
-    public List<Reimbursement> getUserReimbursements(String username) {
-        Optional<User> u = Optional.ofNullable(uDAO.findByUsername(username).getFirst());
-        if (u.isEmpty()) {
-            throw new IllegalArgumentException("No user found with username: " + username);
-        } else {
-            return rDAO.findByUser(u.get());
+    @Transactional(readOnly = true)
+    public ReimbursementPageDTO getReimbursementPage(boolean pendingOnly, int after, int size, Predicate<String> notModified) {
+        if (notModified.test(changeVersions.reimbursementsETag())) {
+            return null;
         }
+        return getReimbursementPage(pendingOnly, after, size);
+    }
+
+    //readOnly = these can be served by the read replica (check ReplicaRoutingConfig)
+    @Transactional(readOnly = true)
+    public List<OutgoingReimbursementDTO> getUserReimbursements(String username) {
+        return toDTOs(rDAO.findByUser(userCache.getUser(username)));
+    }
+
+    @Transactional(readOnly = true)
+    public List<OutgoingReimbursementDTO> getPendingUserReimbursements(String username) {
+        return toDTOs(rDAO.findByUserAndStatus(userCache.getUser(username), "pending"));
+    }
+
+    //No entities loaded here - just the (cached) user id, and then a lookup in the running totals
+    //(a long - every claim fits in an int, but enough of them added up don't)
+    public long getTotalPendingAmount(String username) {
+        return pendingTotals.get(userCache.getUserId(username)).sum();
     }
-    public List<Reimbursement> getPendingUserReimbursements(String username) {
-        Optional<User> u = Optional.ofNullable(uDAO.findByUsername(username).getFirst());
-        if (u.isEmpty()) {
-            throw new IllegalArgumentException("No user found with username: " + username);
+
+    /*Resolve a bunch of pending reimbursements in ONE UPDATE statement
+     Pass either a list of ids, or a filter (username and/or amount range)
+     Reimbursements that aren't pending anymore (or don't exist) are left alone and counted as skipped */
+    @Transactional
+    public BulkResolveResultDTO resolveReimbursements(BulkResolveDTO request, int adminUserId) {
+        String status = request.getStatus();
+        if (!("approved".equals(status) || "denied".equals(status))) {
+            throw new IllegalArgumentException("Bulk resolve status must be approved or denied");
+        }
+
+        List<Object[]> rows;
+        int requested;
+        List<Integer> ids = request.getReimbursementIds();
+        if (ids != null && !ids.isEmpty()) {
+            if (request.getUsername() != null || request.getMinAmount() != null || request.getMaxAmount() != null) {
+                throw new IllegalArgumentException("Send either reimbursementIds or a filter, not both");
+            }
+            if (ids.size() > MAX_BATCH_SIZE) {
+                throw new IllegalArgumentException("Cannot resolve more than " + MAX_BATCH_SIZE + " reimbursements at once");
+            }
+            Set<Integer> distinctIds = new HashSet<>(ids);
+            requested = distinctIds.size();
+            rows = bulkUpdate(() -> rDAO.resolvePendingByIds(status, distinctIds));
         } else {
+            if (request.getUsername() == null && request.getMinAmount() == null && request.getMaxAmount() == null) {
+                throw new IllegalArgumentException("Send reimbursementIds or a filter (username, minAmount, maxAmount)");
+            }
+            //same semantics as findByAmountBetween (inclusive on both ends)
+            int lower = request.getMinAmount() == null ? Integer.MIN_VALUE : request.getMinAmount();
+            int higher = request.getMaxAmount() == null ? Integer.MAX_VALUE : request.getMaxAmount();
+            if (lower > higher) {
+                throw new IllegalArgumentException("minAmount cannot be more than maxAmount");
+            }
+            Integer userId = request.getUsername() == null ? null : userCache.getUserId(request.getUsername());
+            //same cap as the ids - one past it, so we can tell the filter matched too many
+            //(the exception rolls the UPDATE back, so it's all or nothing)
+            rows = bulkUpdate(() -> rDAO.resolvePendingByFilter(status, userId, lower, higher, MAX_BATCH_SIZE + 1));
+            if (rows.size() > MAX_BATCH_SIZE) {
+                throw new IllegalArgumentException("The filter matches more than " + MAX_BATCH_SIZE
+                        + " pending reimbursements, narrow it down");
+            }
+            requested = rows.size(); //a filter only "asks for" what it matches, so nothing is skipped
+        }
 
-            return rDAO.findByUserAndStatus(u.get(),"pending");
+        //every row we changed was pending, and isn't anymore - take it off its user's pending total
+        List<Integer> resolved = new ArrayList<>(rows.size());
+        Map<Integer, long[]> pendingDeltas = new HashMap<>();
+        for (Object[] row : rows) {
+            resolved.add(((Number) row[0]).intValue());
+            long[] delta = pendingDeltas.computeIfAbsent(((Number) row[1]).intValue(), id -> new long[2]);
+            delta[0]--;
+            delta[1] -= ((Number) row[2]).longValue();
         }
+        pendingDeltas.forEach((userId, delta) -> {
+            pendingTotals.adjust(userId, (int) delta[0], delta[1]);
+            changeVersions.reimbursementsChanged(userId);
+        });
+        statusAudit.changedAll(resolved, "pending", status, adminUserId);
+
+        return new BulkResolveResultDTO(resolved, requested - resolved.size());
     }
 
-    public int getTotalPendingAmount(String username) {
-        Optional<User> u = Optional.ofNullable(uDAO.findByUsername(username).getFirst());
-        if (u.isEmpty()) {
-            throw new IllegalArgumentException("No user found with id: " + username);
-        } else {
+    /*Run a native UPDATE ... RETURNING. It goes straight to the DB, so first flush any changes we haven't sent yet,
+     and afterwards clear the persistence context - a Reimbursement loaded earlier in this transaction
+     would still show its OLD status (a later find would hand back that stale copy instead of reading the row) */
+    private List<Object[]> bulkUpdate(Supplier<List<Object[]>> update) {
+        entityManager.flush();
+        List<Object[]> rows = update.get();
+        entityManager.clear();
+        return rows;
+    }
 
-            List<Reimbursement> pendingReimbursements = rDAO.findByUserAndStatus(u.get(),"pending");
+    //This method gets one page of reimbursements (all of them, or only pending ones) from the DB
+    //after = the id of the last reimbursement the client already has (0 for the first page)
+    @Transactional(readOnly = true)
+    public ReimbursementPageDTO getReimbursementPage(boolean pendingOnly, int after, int size) {
 
-            int totalAmount = 0;
-            for (Reimbursement r: pendingReimbursements) {
-                totalAmount = totalAmount + r.getAmount();
-            }
-            return totalAmount;
+        if (after < 0) {
+            throw new IllegalArgumentException("Cursor cannot be negative");
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        //cap the page size so one request can't pull the whole table into memory
+        size = Math.min(size, MAX_PAGE_SIZE);
+
+        //ask for one extra row - if it comes back, we know there's another page
+        Limit limit = Limit.of(size + 1);
+        List<Reimbursement> rows = pendingOnly
+                ? rDAO.findByStatusAndReimbursementIdGreaterThanOrderByReimbursementIdAsc("pending", after, limit)
+                : rDAO.findByReimbursementIdGreaterThanOrderByReimbursementIdAsc(after, limit);
+
+        if (rows.size() <= size) {
+            return new ReimbursementPageDTO(toDTOs(rows), null);
         }
+        List<Reimbursement> page = rows.subList(0, size);
+        return new ReimbursementPageDTO(toDTOs(page), page.getLast().getReimbursementId());
     }
 
-    public List<Reimbursement> getAllPendingReimbursements() {
-        return rDAO.findByStatus("pending");
+    /*Search the descriptions (check ReimbursementDAO.searchDescriptions), optionally only one status and/or one user's
+     Pages are numbered from 0, best matches first. next is the following page's number (null on the last page)
+     The DB keeps the search column up to date by itself on every insert (check V4 in db/migration) */
+    @Transactional(readOnly = true)
+    public ReimbursementPageDTO searchReimbursements(String query, String status, String username, int page, int size) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query cannot be empty");
+        }
+        if (query.length() > 200) {
+            throw new IllegalArgumentException("Search query cannot be longer than 200 characters");
+        }
+        if (status != null && !isValidStatus(status)) {
+            throw new IllegalArgumentException("Invalid status");
+        }
+        if (page < 0) {
+            throw new IllegalArgumentException("Page cannot be negative");
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        size = Math.min(size, MAX_PAGE_SIZE);
+        if ((long) page * size >= MAX_SEARCH_RESULTS) {
+            throw new IllegalArgumentException("Only the first " + MAX_SEARCH_RESULTS + " results can be paged through, try a narrower search");
+        }
+        Integer userId = username == null ? null : userCache.getUserId(username);
+
+        //ids first (one extra, to know if there's another page), then the rows for just those ids
+        List<Integer> ids = rDAO.searchDescriptions(query, status, userId, MAX_SEARCH_RESULTS, size + 1, page * size);
+        Integer next = null;
+        if (ids.size() > size) {
+            ids = ids.subList(0, size);
+            next = page + 1;
+        }
+        Map<Integer, Reimbursement> byId = new HashMap<>();
+        for (Reimbursement r : rDAO.findByReimbursementIdIn(ids)) {
+            byId.put(r.getReimbursementId(), r);
+        }
+        List<Reimbursement> ranked = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Reimbursement r = byId.get(id);
+            if (r != null) { //(unless it was deleted between the two queries)
+                ranked.add(r);
+            }
+        }
+        return new ReimbursementPageDTO(toDTOs(ranked), next);
     }
-    //This method gets all reimbursements from the DB
-    public List<Reimbursement> getAllReimbursements() {
-        //not much error handling in a get all
-        return rDAO.findAll();
+
+    //entities -> outgoing DTOs (their users were already fetched by the DAO's @EntityGraph)
+    private static List<OutgoingReimbursementDTO> toDTOs(List<Reimbursement> rows) {
+        List<OutgoingReimbursementDTO> out = new ArrayList<>(rows.size());
+        for (Reimbursement r : rows) {
+            out.add(new OutgoingReimbursementDTO(r));
+        }
+        return out;
     }
 }
\ No newline at end of file
@@ -0,0 +1,345 @@
+package com.revature.services;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/*A durable, append-only log on local disk - split into segment files, so old parts can be deleted
+
+ append() returns once the record is fsync'd, so it survives a crash (or a power cut) from then on.
+ Appends that arrive while an fsync is running share the next one ("group commit"),
+ so lots of small appends don't mean lots of fsyncs.
+
+ Every record gets the next sequence number. On disk a record is
+    [payload length: int][CRC32C of seq + payload: int][seq: long][payload]
+ and each segment file is named after the first seq in it (00000000000000000001.log, ...).
+
+ ONE reader (poll) walks the log in order. Once it's done with everything up to some seq, checkpoint(seq)
+ saves that in the "checkpoint" file and deletes the segments that are entirely before it.
+ After a restart, the reader starts again right after the checkpoint - so anything that was appended but
+ not checkpointed gets read AGAIN (at-least-once: whoever processes the records must handle repeats).
+
+ A crash in the middle of an append leaves half a record at the end of the last segment -
+ the CRC catches it when the log is opened, and it gets cut off (it was never acknowledged anyway).
+ poll() checks every record's CRC again as it reads - a bad record in an OLDER segment is an error, not something to cut off */
+public class SegmentedLog implements AutoCloseable {
+
+    private static final int HEADER = 4 + 4 + 8;
+    public static final int MAX_RECORD = 1 << 20;
+
+    public record Entry(long seq, byte[] payload) {
+    }
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final Path checkpointFile;
+
+    //the segment being appended to (guarded by appendLock)
+    private final Object appendLock = new Object();
+    private FileChannel current;
+    private Path currentPath;
+    private long lastSeq;
+
+    //everything up to "durable" has been fsync'd (syncLock makes sure one thread at a time runs the fsync)
+    private final Object syncLock = new Object();
+    private volatile long written;
+    private volatile long durable;
+    private volatile long checkpoint;
+
+    //the reader's position (only the one reader thread uses these)
+    private FileChannel readChannel;
+    private Path readPath;
+    private long readSeq;
+
+    public SegmentedLog(Path dir, long segmentBytes) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.checkpointFile = dir.resolve("checkpoint");
+        try {
+            Files.createDirectories(dir);
+            checkpoint = Files.exists(checkpointFile) ? Long.parseLong(Files.readString(checkpointFile).trim()) : 0;
+            List<Path> segments = segments();
+            if (segments.isEmpty()) {
+                lastSeq = checkpoint;
+                openSegment(checkpoint + 1);
+            } else {
+                currentPath = segments.getLast();
+                current = FileChannel.open(currentPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                lastSeq = recover(current, firstSeqOf(currentPath) - 1);
+            }
+            written = lastSeq;
+            durable = lastSeq;
+            readSeq = checkpoint;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't open the log in " + dir, e);
+        }
+    }
+
+    //Write one record, and wait until it's on disk. Returns its sequence number
+    public long append(byte[] payload) {
+        if (payload.length > MAX_RECORD) {
+            throw new IllegalArgumentException("Record too big: " + payload.length + " bytes");
+        }
+        long seq;
+        synchronized (appendLock) {
+            seq = lastSeq + 1;
+            try {
+                if (current.position() + HEADER + payload.length > segmentBytes && current.position() > 0) {
+                    //the old segment gets fsync'd before we move on, so syncing only ever has to look at the newest one
+                    current.force(false);
+                    current.close();
+                    openSegment(seq);
+                }
+                ByteBuffer record = ByteBuffer.allocate(HEADER + payload.length);
+                record.putInt(payload.length).putInt(crc(seq, payload)).putLong(seq).put(payload).flip();
+                while (record.hasRemaining()) {
+                    current.write(record);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Couldn't append to the log", e);
+            }
+            lastSeq = seq;
+            written = seq;
+        }
+        sync(seq);
+        return seq;
+    }
+
+    private void sync(long seq) {
+        if (durable >= seq) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (durable >= seq) {
+                return; //someone else's fsync covered us while we waited
+            }
+            long target = written; //everything up to here is already written to the file
+            try {
+                FileChannel channel;
+                synchronized (appendLock) {
+                    channel = current;
+                }
+                channel.force(false);
+            } catch (ClosedChannelException e) {
+                //an append rolled over to a new segment meanwhile - and fsync'd this one before closing it
+            } catch (IOException e) {
+                throw new UncheckedIOException("Couldn't fsync the log", e);
+            }
+            durable = target;
+        }
+    }
+
+    //Up to "max" records after the last one poll() returned (only ones that are on disk). ONE reader thread only
+    public List<Entry> poll(int max) {
+        List<Entry> out = new ArrayList<>();
+        long upTo = durable;
+        try {
+            while (out.size() < max && readSeq < upTo) {
+                if (readChannel == null && !openReader()) {
+                    break;
+                }
+                ByteBuffer header = ByteBuffer.allocate(HEADER);
+                int got = readFully(readChannel, header);
+                if (got == 0) {
+                    //end of this segment - move on to the next one
+                    readChannel.close();
+                    readChannel = null;
+                    continue;
+                }
+                if (got < HEADER) {
+                    throw new IOException("Record " + (readSeq + 1) + " in " + readPath + " ends in the middle of its header");
+                }
+                header.flip();
+                int length = header.getInt();
+                int crc = header.getInt();
+                long seq = header.getLong();
+                if (length < 0 || length > MAX_RECORD) {
+                    throw new IOException("Record " + (readSeq + 1) + " in " + readPath + " has a bad length: " + length);
+                }
+                byte[] payload = new byte[length];
+                if (readFully(readChannel, ByteBuffer.wrap(payload)) < length) {
+                    throw new IOException("Record " + seq + " in " + readPath + " ends before its payload does");
+                }
+                //opening the log only checks the LAST segment - an older one could have gone bad on disk since
+                if (crc(seq, payload) != crc) {
+                    throw new IOException("Record " + seq + " in " + readPath + " is corrupt (CRC doesn't match)");
+                }
+                readSeq = seq;
+                if (seq > checkpoint) {
+                    out.add(new Entry(seq, payload));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't read the log", e);
+        }
+        return out;
+    }
+
+    //The reader is done with everything up to seq - remember that, and delete the segments we don't need anymore
+    public void checkpoint(long seq) {
+        try {
+            Path tmp = dir.resolve("checkpoint.tmp");
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ch.write(ByteBuffer.wrap(Long.toString(seq).getBytes()));
+                ch.force(true);
+            }
+            Files.move(tmp, checkpointFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            syncDir(); //the rename itself is only durable once the directory is
+            checkpoint = seq;
+
+            //a segment can go once the NEXT one starts at or before seq + 1 (so all of it is checkpointed)
+            List<Path> segments = segments();
+            for (int i = 0; i + 1 < segments.size(); i++) {
+                Path s = segments.get(i);
+                if (firstSeqOf(segments.get(i + 1)) <= seq + 1 && !s.equals(readPath) && !s.equals(currentPath)) {
+                    Files.deleteIfExists(s);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't write the log checkpoint", e);
+        }
+    }
+
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    public long getDurable() {
+        return durable;
+    }
+
+    //appended (and fsync'd) but not checkpointed yet
+    public long backlog() {
+        return durable - checkpoint;
+    }
+
+    public int segmentCount() {
+        try {
+            return segments().size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            synchronized (appendLock) {
+                current.force(false);
+                current.close();
+            }
+            if (readChannel != null) {
+                readChannel.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //point the reader at the segment holding readSeq + 1
+    private boolean openReader() throws IOException {
+        Path next = null;
+        for (Path s : segments()) {
+            if (firstSeqOf(s) <= readSeq + 1) {
+                next = s;
+            }
+        }
+        if (next == null || next.equals(readPath)) {
+            //already read all of this segment - it must be the next one's turn
+            next = segments().stream().filter(s -> firstSeqOf(s) > readSeq).findFirst().orElse(null);
+        }
+        if (next == null) {
+            return false;
+        }
+        readPath = next;
+        readChannel = FileChannel.open(next, StandardOpenOption.READ);
+        return true;
+    }
+
+    //read() can return fewer bytes than asked for - keep going until the buffer is full or the file ends.
+    //Returns how many bytes it got
+    private static int readFully(FileChannel ch, ByteBuffer buf) throws IOException {
+        int total = 0;
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf);
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    //a new segment file only survives a power cut once the directory's entry for it is on disk too -
+    //without this, records fsync'd into it (and acknowledged) could vanish along with the file
+    private void openSegment(long firstSeq) throws IOException {
+        currentPath = dir.resolve(String.format("%020d.log", firstSeq));
+        current = FileChannel.open(currentPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        syncDir();
+    }
+
+    private void syncDir() throws IOException {
+        try (FileChannel d = FileChannel.open(dir, StandardOpenOption.READ)) {
+            d.force(true);
+        }
+    }
+
+    //Check every record in the last segment, and cut it off after the last good one. Returns the last good seq
+    private static long recover(FileChannel ch, long seqBefore) throws IOException {
+        long pos = 0;
+        long seq = seqBefore;
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        while (true) {
+            header.clear();
+            if (ch.read(header, pos) < HEADER) {
+                break;
+            }
+            header.flip();
+            int length = header.getInt();
+            int crc = header.getInt();
+            long recordSeq = header.getLong();
+            if (length < 0 || length > MAX_RECORD || recordSeq != seq + 1) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            if (ch.read(ByteBuffer.wrap(payload), pos + HEADER) < length || crc(recordSeq, payload) != crc) {
+                break;
+            }
+            seq = recordSeq;
+            pos += HEADER + length;
+        }
+        ch.truncate(pos);
+        ch.position(pos);
+        ch.force(true);
+        return seq;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    private static long firstSeqOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - ".log".length()));
+    }
+
+    private static int crc(long seq, byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(ByteBuffer.allocate(8).putLong(0, seq));
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
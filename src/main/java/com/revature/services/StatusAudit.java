@@ -0,0 +1,88 @@
+package com.revature.services;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/*The history of every reimbursement's status - who resolved it, from what, to what, and when
+
+ The status column only holds the LATEST status, so ReimbursementService reports each change here,
+ and it goes into an AuditLog (memory-mapped files on local disk, check the class for details).
+ That keeps the history out of the DB entirely: a bulk approval of 5000 claims is still ONE UPDATE,
+ plus 5000 x 24 bytes copied into mapped memory - not 5000 more INSERTs.
+
+ Like PendingTotals, changes are only recorded once the transaction commits (a rolled back resolve never happened).
+ That also means a crash (or kill -9) between the commit and the append loses the change from the history:
+ the status in the DB changed, but there's no entry for it. This is a best-effort history, not a guaranteed one.
+ The mapped pages are flushed to disk every audit.flush-ms, and when the app shuts down
+
+ The log is on THIS node's disk, and only holds the changes THIS node made. With more than one node behind the load
+ balancer, each node has its own part of the history, and GET /reimbursements/audit only answers from the part
+ on whichever node served the request - a change resolved on node A is NOT in node B's answer.
+ So with several nodes, the complete history is every node's audit.dir put together (nothing here merges them) */
+@Component
+public class StatusAudit implements DisposableBean {
+
+    private final AuditLog auditLog;
+
+    @Autowired
+    public StatusAudit(@Value("${audit.dir:data/audit}") String dir,
+                       @Value("${audit.segment-bytes:8388608}") long segmentBytes,
+                       @Value("${audit.retain-segments:64}") int retainSegments) {
+        this.auditLog = new AuditLog(Path.of(dir), segmentBytes, retainSegments, System::currentTimeMillis);
+    }
+
+    //One reimbursement went from oldStatus to newStatus
+    public void changed(int reimbursementId, String oldStatus, String newStatus, int adminUserId) {
+        afterCommit(() -> auditLog.append(reimbursementId, oldStatus, newStatus, adminUserId));
+    }
+
+    //A whole bulk resolve (they all had the same old status, and got the same new one)
+    public void changedAll(List<Integer> reimbursementIds, String oldStatus, String newStatus, int adminUserId) {
+        if (!reimbursementIds.isEmpty()) {
+            afterCommit(() -> auditLog.appendAll(reimbursementIds, oldStatus, newStatus, adminUserId));
+        }
+    }
+
+    public List<AuditLog.Entry> history(int reimbursementId, int limit) {
+        return auditLog.byReimbursement(reimbursementId, limit);
+    }
+
+    public List<AuditLog.Entry> between(long from, long to, int limit) {
+        return auditLog.between(from, to, limit);
+    }
+
+    public long size() {
+        return auditLog.size();
+    }
+
+    @Scheduled(fixedDelayString = "${audit.flush-ms:1000}")
+    public void flush() {
+        auditLog.flush();
+    }
+
+    @Override
+    public void destroy() {
+        auditLog.close();
+    }
+
+    private static void afterCommit(Runnable record) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record.run();
+                }
+            });
+        } else {
+            record.run();
+        }
+    }
+}
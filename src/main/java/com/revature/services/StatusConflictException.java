@@ -0,0 +1,10 @@
+package com.revature.services;
+
+//A reimbursement wasn't in the status the caller expected anymore (someone else resolved it first)
+//The controllers turn this into a 409 CONFLICT - it's the client's race to retry, not a bug on our end
+public class StatusConflictException extends RuntimeException {
+
+    public StatusConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,124 @@
+package com.revature.services;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/*STATELESS AUTH - instead of keeping a session on the server, we hand the user a signed TOKEN when they log in
+
+ The token carries their userId, username and role (+ when it expires), and an HMAC-SHA256 signature.
+ Only someone with our secret key can make a valid signature, so if the signature checks out, we can trust
+ what's in the token - no session lookup needed, and ANY copy of the app (with the same secret) can check it.
+
+ Token format: base64url(userId:role:expiresAt:username) + "." + base64url(signature) */
+@Service
+public class TokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenService.class);
+
+    //the request attribute we stash the checked claims in (so we only verify once per request)
+    public static final String CLAIMS_ATTRIBUTE = TokenService.class.getName() + ".claims";
+
+    //What a valid token tells us about the user
+    public record Claims(int userId, String username, String role, long expiresAt) {
+        public boolean isAdmin() {
+            return "admin".equals(role);
+        }
+    }
+
+    private final Mac prototype; //Mac objects aren't thread safe, so we clone this one for each use
+    private final Duration ttl;
+
+    public TokenService(@Value("${auth.token.secret:}") String secret,
+                        @Value("${auth.token.ttl-minutes:480}") long ttlMinutes) throws GeneralSecurityException {
+        byte[] key;
+        if (secret == null || secret.isBlank()) {
+            //fine for running one copy locally, but every copy behind a load balancer needs the SAME secret
+            log.warn("auth.token.secret is not set - using a random key, tokens won't survive a restart");
+            key = new byte[32];
+            new SecureRandom().nextBytes(key);
+        } else {
+            key = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.prototype = Mac.getInstance("HmacSHA256");
+        this.prototype.init(new SecretKeySpec(key, "HmacSHA256"));
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+    }
+
+    public String issue(int userId, String username, String role) {
+        long expiresAt = Instant.now().plus(ttl).getEpochSecond();
+        String payload = userId + ":" + role + ":" + expiresAt + ":" + username;
+        String encoded = Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        return encoded + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(sign(encoded));
+    }
+
+    //Returns the claims of a valid, unexpired token - or null if it's missing, tampered with, or expired
+    public Claims verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0) {
+            return null;
+        }
+        String encoded = token.substring(0, dot);
+        byte[] signature;
+        String[] parts;
+        try {
+            signature = Base64.getUrlDecoder().decode(token.substring(dot + 1));
+            //MessageDigest.isEqual takes the same time no matter where the bytes differ (no timing attacks)
+            if (!MessageDigest.isEqual(sign(encoded), signature)) {
+                return null;
+            }
+            parts = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8).split(":", 4);
+        } catch (IllegalArgumentException e) {
+            return null; //not valid base64
+        }
+        if (parts.length != 4) {
+            return null;
+        }
+        long expiresAt = Long.parseLong(parts[2]);
+        if (Instant.now().getEpochSecond() >= expiresAt) {
+            return null;
+        }
+        return new Claims(Integer.parseInt(parts[0]), parts[3], parts[1], expiresAt);
+    }
+
+    //The claims of the token in this request's "Authorization: Bearer ..." header (or null)
+    public Claims fromRequest(HttpServletRequest request) {
+        Object cached = request.getAttribute(CLAIMS_ATTRIBUTE);
+        if (cached instanceof Claims claims) {
+            return claims;
+        }
+        String header = request.getHeader("Authorization");
+        if (header == null || !header.startsWith("Bearer ")) {
+            return null;
+        }
+        Claims claims = verify(header.substring(7).trim());
+        if (claims != null) {
+            request.setAttribute(CLAIMS_ATTRIBUTE, claims);
+        }
+        return claims;
+    }
+
+    private byte[] sign(String encodedPayload) {
+        try {
+            Mac mac = (Mac) prototype.clone();
+            return mac.doFinal(encodedPayload.getBytes(StandardCharsets.US_ASCII));
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("HMAC is not cloneable", e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.revature.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.revature.daos.UserDAO;
+import com.revature.daos.UserView;
+import com.revature.models.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*A READ-THROUGH cache of username -> user (id, names, role - never the password)
+
+ Almost every reimbursement operation starts by turning a username into a User.
+ Instead of a DB round trip every time, we ask the cache first - it only goes to the DB on a miss.
+
+ Caffeine does the hard parts for us:
+    -maximumSize: once full, the least useful entries get evicted
+    -expireAfterWrite: entries are dropped after a while, so they can't go stale forever
+    -recordStats: counts hits/misses/evictions (check the /users/cache endpoint)
+
+ deleteUser invalidates the entry on the instance that ran it - but with several instances, the OTHER ones
+ keep resolving the deleted username until their entry expires (users.cache.ttl-seconds, 60 by default).
+ Anything they do with it in that window fails at the DB (ex: a new reimbursement breaks the user_id foreign key).
+ Shorter = less stale, longer = fewer DB trips */
+@Component
+public class UserCache {
+
+    private final UserDAO uDAO;
+    private final Cache<String, UserView> cache;
+
+    @Autowired
+    public UserCache(UserDAO uDAO,
+                     @Value("${users.cache.max-size:10000}") long maxSize,
+                     @Value("${users.cache.ttl-seconds:60}") long ttlSeconds) {
+        this.uDAO = uDAO;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    //Get a user by username, throwing if they don't exist
+    //(unknown usernames aren't cached - the loader returns null, and Caffeine doesn't store nulls)
+    public UserView get(String username) {
+        UserView user = cache.get(username, name -> uDAO.findViewByUsername(name).orElse(null));
+        if (user == null) {
+            throw new IllegalArgumentException("No user found with username: " + username);
+        }
+        return user;
+    }
+
+    public int getUserId(String username) {
+        return get(username).userId();
+    }
+
+    /*A detached User with just the cached fields filled in
+     Good enough to link a new Reimbursement to (Hibernate only needs the id for the FK)
+     and to send back in a response (no password!) */
+    public User getUser(String username) {
+        return toUser(get(username));
+    }
+
+    /*Remember a user we already looked up some other way (ex: in a batch query), or just registered
+     Inside a transaction it waits until that commits - after a rollback, the cache would hand out a user
+     the DB doesn't have (and their next reimbursement would break the user_id foreign key) */
+    public void put(UserView user) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.put(user.username(), user);
+                }
+            });
+        } else {
+            cache.put(user.username(), user);
+        }
+    }
+
+    public static User toUser(UserView view) {
+        User u = new User(view.userId(), view.firstName(), view.lastName(), view.username(), null, view.role());
+        u.setUserId(view.userId()); //(the User constructor doesn't set the id)
+        return u;
+    }
+
+    //Call this whenever a user gets deleted (or changed)
+    //Inside a transaction, it's invalidated again once that commits - another request could have loaded
+    //the old row (still there until the commit) back into the cache in between
+    public void invalidate(String username) {
+        cache.invalidate(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(username);
+                }
+            });
+        }
+    }
+
+    public Cache<String, UserView> getCache() {
+        return cache;
+    }
+
+    //hit/miss/eviction counters for the admin stats endpoint
+    public Map<String, Object> stats() {
+        CacheStats s = cache.stats();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", cache.estimatedSize());
+        stats.put("hits", s.hitCount());
+        stats.put("misses", s.missCount());
+        stats.put("evictions", s.evictionCount());
+        stats.put("hitRate", s.hitRate());
+        return stats;
+    }
+}
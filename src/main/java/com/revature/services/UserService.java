@@ -1,12 +1,17 @@
 package com.revature.services;
 
 import com.revature.daos.UserDAO;
+import com.revature.daos.UserView;
+import com.revature.models.DTOs.OutgoingUserDTO;
 import com.revature.models.User;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Predicate;
 
 /*What is the Service layer?? It's also known as the "Business Logic Layer" because...
 
@@ -21,14 +26,28 @@ public class UserService {
     //We can't instantiate Interfaces like Classes... how do we get access to our DAO methods?
     //DEPENDENCY INJECTION! With the @Autowired dependency
     private UserDAO uDAO;
+    private PendingTotals pendingTotals;
+    private UsernameIndex usernameIndex; //in-memory index for the username search
+    private UserCache userCache; //username -> user cache used by ReimbursementService
+    private ChangeVersions changeVersions; //versions behind the ETags on the list endpoints
+
+    //the most users a username search will send back
+    public static final int MAX_SEARCH_RESULTS = 100;
 
     //This is CONSTRUCTOR INJECTION (not setter injection, not field injection)
     @Autowired
-    public UserService(UserDAO userDAO) {
+    public UserService(UserDAO userDAO, PendingTotals pendingTotals, UsernameIndex usernameIndex, UserCache userCache,
+                       ChangeVersions changeVersions) {
         this.uDAO = userDAO;
+        this.pendingTotals = pendingTotals;
+        this.usernameIndex = usernameIndex;
+        this.userCache = userCache;
+        this.changeVersions = changeVersions;
     }
 
     //This method inserts new Users into the DB
+    //(one read-write transaction, so the "username taken?" check reads the primary - never a lagging replica)
+    @Transactional
     public User registerUser(String firstName, String lastName, String username, String password, String role){
         User newUser = new User(0, firstName, lastName, username, password, role);
         //TODO: Check that the username is unique (get user by username, see if it's null)
@@ -49,10 +68,19 @@ public class UserService {
             throw new IllegalArgumentException("Password cannot be empty!");
         }
         //.save() is the JPA method to insert data into the DB. We can also use this for updates
-        //It also returns the saved object, so we can just return the method call. Convenient!
-        return uDAO.save(newUser);
+        //It also returns the saved object. Convenient!
+        User saved = uDAO.save(newUser);
+        //the new user should show up in username searches right away
+        UserView view = new UserView(saved.getUserId(), saved.getFirstName(), saved.getLastName(), saved.getUsername(), saved.getRole());
+        usernameIndex.put(view);
+        //and be in the cache already, so their first reimbursement doesn't look them up on a replica that hasn't seen them yet
+        userCache.put(view);
+        changeVersions.userAdded(saved.getUserId());
+        return saved;
     }
 
+    //one transaction, so the ETag version bump (check ChangeVersions) commits together with the delete
+    @Transactional
     public User deleteUser(int userid) {
         User u = uDAO.findByUserId(userid);
         if (u == null) {
@@ -60,11 +88,18 @@ public class UserService {
         }
 
         uDAO.deleteById(userid);
+        //the user's reimbursements were deleted too (cascade), so their pending total goes away
+        pendingTotals.remove(userid);
+        usernameIndex.remove(u.getUsername());
+        userCache.invalidate(u.getUsername());
+        changeVersions.userRemoved(userid);
         return u;
     }
 
     //This method gets a user by username
-    public List<User> getUserByUsername(String username){
+    //readOnly = it can be served by the read replica (check ReplicaRoutingConfig)
+    @Transactional(readOnly = true)
+    public List<OutgoingUserDTO> getUserByUsername(String username){
 
         //a little error handling
         if(username == null || username.isBlank()){
@@ -75,25 +110,44 @@ public class UserService {
         //if(userDAO.findByUsername(username) == null){throw Exp}
 
         //findByUsername is a method WE DEFINED in the UserDAO (but didn't have to implement!)
-        return uDAO.findByUsername(username);
+        //(sent back as DTOs, so the password stays on the server)
+        return uDAO.findByUsername(username).stream().map(OutgoingUserDTO::new).toList();
     }
-    public List<User> getUserByUsernameStartingWith(String username){
+    //Type-ahead search - served from the in-memory UsernameIndex, not the DB
+    public List<OutgoingUserDTO> getUserByUsernameStartingWith(String username, int limit){
 
         //a little error handling
+        if(limit < 1){
+            throw new IllegalArgumentException("Limit must be at least 1");
+        }
+
+        //a blank prefix matches every user, but we still only send back the first "limit" of them
         if(username == null || username.isBlank()){
-            return uDAO.findAll();
+            username = "";
         }
 
-        //TODO: we could check if the returned user is null and throw an exception
-        //if(userDAO.findByUsername(username) == null){throw Exp}
+        return usernameIndex.search(username, Math.min(limit, MAX_SEARCH_RESULTS)).stream().map(OutgoingUserDTO::new).toList();
+    }
+    //hit/miss/eviction counters of the UserCache
+    public Map<String, Object> getUserCacheStats(){
+        return userCache.stats();
+    }
 
-        //findByUsername is a method WE DEFINED in the UserDAO (but didn't have to implement!)
-        return uDAO.findByUsernameStartingWith(username);
+    //The user list behind its ETag (check ChangeVersions) - the version first, then the users, in ONE read-only transaction
+    //notModified gets the ETag - if the client's copy is still current, we return null without loading the users
+    @Transactional(readOnly = true)
+    public List<OutgoingUserDTO> getAllUsers(Predicate<String> notModified){
+        if (notModified.test(changeVersions.usersETag())) {
+            return null;
+        }
+        return getAllUsers();
     }
+
     //This method gets all users from the DB
-    public List<User> getAllUsers(){
-        //findAll() is a JPA method that returns all records in a table
-        return uDAO.findAll();
+    @Transactional(readOnly = true)
+    public List<OutgoingUserDTO> getAllUsers(){
+        //findAllViews() is our projection query - one SELECT, no User entities
+        return uDAO.findAllViews().stream().map(OutgoingUserDTO::new).toList();
 
         //Not much error handling in a get all... maybe checking to see if it's empty?
     }
@@ -0,0 +1,162 @@
+package com.revature.services;
+
+import com.revature.config.ReadRouting;
+import com.revature.daos.UserDAO;
+import com.revature.daos.UserView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/*An in-memory, SORTED index of every user, keyed by username - powers the type-ahead user search
+
+ Because the keys are sorted, every username starting with "ab" sits right next to each other,
+ starting at the first key >= "ab". So a prefix search is: jump there, walk forward until the prefix stops matching
+ (or we have enough results). No LIKE query, no DB round trip.
+
+ ConcurrentSkipListMap is the thread-safe sorted map, so searches never block registrations/deletes.
+ UserService keeps it current, and it gets loaded from the DB every time the app starts.
+
+ With several instances behind a load balancer, a user registered (or deleted) on ANOTHER instance only
+ reaches this index when the scheduled refresh() next scans the users table (users.index.refresh-ms).
+ Usernames this instance put/removed shortly before or while the scan ran are left alone - the scan might have
+ missed that change (a scan that started before the change's transaction committed doesn't see it yet)
+
+ put() and remove() inside a transaction wait until it commits (like PendingTotals.adjust) - a registration
+ that rolls back must never become searchable, and a delete that rolls back must not hide the user */
+@Component
+public class UsernameIndex implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(UsernameIndex.class);
+
+    private final UserDAO uDAO;
+    private final TransactionTemplate readOnlyTx;
+    private final ReadRouting readRouting;
+
+    private final ConcurrentSkipListMap<String, UserView> byUsername = new ConcurrentSkipListMap<>();
+
+    //username -> when (System.nanoTime) this instance last put/removed it - forgotten once it's older than GRACE_NANOS
+    private final ConcurrentHashMap<String, Long> touched = new ConcurrentHashMap<>();
+
+    //way longer than a registration's transaction can take
+    private static final long GRACE_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    @Autowired
+    public UsernameIndex(UserDAO uDAO, PlatformTransactionManager txManager, ReadRouting readRouting) {
+        this.uDAO = uDAO;
+        this.readRouting = readRouting;
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    //Fill the index with one streaming scan of the users table (rows are never all in memory as entities)
+    //From the primary - registrations only update the index on the instance that made them, so it can't start out behind
+    @Override
+    public void afterPropertiesSet() {
+        scan().forEach(byUsername::put);
+        log.info("Indexed {} usernames", byUsername.size());
+    }
+
+    /*Catch up with users registered/deleted on other instances (one streaming scan, also from the primary)
+     Returns how many usernames were added or removed */
+    @Scheduled(initialDelayString = "${users.index.refresh-ms:60000}", fixedDelayString = "${users.index.refresh-ms:60000}")
+    public int refresh() {
+        long cutoff = System.nanoTime() - GRACE_NANOS;
+        Map<String, UserView> current = scan();
+
+        int fixed = 0;
+        for (UserView user : current.values()) {
+            if (!byUsername.containsKey(user.username()) && untouchedSince(user.username(), cutoff)) {
+                byUsername.put(user.username(), user);
+                fixed++;
+            }
+        }
+        for (String username : byUsername.keySet()) {
+            if (!current.containsKey(username) && untouchedSince(username, cutoff)) {
+                byUsername.remove(username);
+                fixed++;
+            }
+        }
+        touched.values().removeIf(when -> when - cutoff < 0);
+        if (fixed > 0) {
+            log.info("Username index refresh added/removed {} usernames", fixed);
+        }
+        return fixed;
+    }
+
+    public void put(UserView user) {
+        afterCommit(() -> {
+            touched.put(user.username(), System.nanoTime());
+            byUsername.put(user.username(), user);
+        });
+    }
+
+    public void remove(String username) {
+        afterCommit(() -> {
+            touched.put(username, System.nanoTime());
+            byUsername.remove(username);
+        });
+    }
+
+    //run it once the current transaction commits (never, if it rolls back) - or right away if there's no transaction
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    private boolean untouchedSince(String username, long cutoff) {
+        Long last = touched.get(username);
+        return last == null || last - cutoff < 0;
+    }
+
+    private Map<String, UserView> scan() {
+        Map<String, UserView> users = new HashMap<>();
+        readRouting.onPrimary(() -> readOnlyTx.execute(status -> {
+            try (Stream<UserView> rows = uDAO.streamAllViews()) {
+                rows.forEach(u -> users.put(u.username(), u));
+            }
+            return null;
+        }));
+        return users;
+    }
+
+    //Up to "limit" users whose username starts with the prefix, in username order
+    //An empty prefix matches everyone (but still only returns "limit" of them)
+    public List<UserView> search(String prefix, int limit) {
+        List<UserView> results = new ArrayList<>(Math.min(limit, 64));
+        for (Map.Entry<String, UserView> e : byUsername.tailMap(prefix, true).entrySet()) {
+            if (results.size() >= limit || !e.getKey().startsWith(prefix)) {
+                break;
+            }
+            results.add(e.getValue());
+        }
+        return results;
+    }
+
+    public int size() {
+        return byUsername.size();
+    }
+}
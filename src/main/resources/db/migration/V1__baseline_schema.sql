@@ -0,0 +1,27 @@
+-- The schema ddl-auto=update used to build from the @Entity classes.
+-- Everything is IF NOT EXISTS, so this is safe to run on a DB that already has these tables.
+
+CREATE TABLE IF NOT EXISTS users (
+    user_id    integer GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    first_name varchar(255) NOT NULL,
+    last_name  varchar(255) NOT NULL,
+    username   varchar(255) NOT NULL UNIQUE,
+    password   varchar(255) NOT NULL,
+    role       varchar(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS reimbursements (
+    reimbursement_id integer PRIMARY KEY,
+    description      varchar(255) NOT NULL,
+    amount           integer NOT NULL,
+    status           varchar(255) NOT NULL,
+    user_id          integer REFERENCES users (user_id)
+);
+
+-- Reimbursement ids come from this sequence, 50 at a time (allocationSize = 50 in Reimbursement.java)
+CREATE SEQUENCE IF NOT EXISTS reimbursements_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE reimbursements_seq INCREMENT BY 50;
+
+-- Start handing out ids after the highest one already in the table
+-- (Hibernate uses the value it gets back as the TOP of its block of 50)
+SELECT setval('reimbursements_seq', GREATEST((SELECT COALESCE(MAX(reimbursement_id), 0) FROM reimbursements), 1));
@@ -0,0 +1,29 @@
+-- Indexes for the queries in UserDAO / ReimbursementDAO.
+-- CONCURRENTLY so building them doesn't block writes on a live DB
+-- (Flyway runs this migration outside a transaction because of it).
+
+-- findByUser, findByUserAndStatus (and deleting a user's reimbursements)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS reimbursements_user_status_idx
+    ON reimbursements (user_id, status);
+
+-- findByStatus + the keyset pages for one status (WHERE status = ? AND reimbursement_id > ? ORDER BY reimbursement_id)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS reimbursements_status_id_idx
+    ON reimbursements (status, reimbursement_id);
+
+-- Pending reimbursements are a small slice of the table, and most of what we look up.
+-- Keyset pages of pending ones, and bulk resolve by id
+CREATE INDEX CONCURRENTLY IF NOT EXISTS reimbursements_pending_idx
+    ON reimbursements (reimbursement_id) WHERE status = 'pending';
+
+-- sumPendingByUser (answered from the index alone), one user's pending list, bulk resolve by user + amount
+CREATE INDEX CONCURRENTLY IF NOT EXISTS reimbursements_pending_user_idx
+    ON reimbursements (user_id, amount) WHERE status = 'pending';
+
+-- findByAmountBetween
+CREATE INDEX CONCURRENTLY IF NOT EXISTS reimbursements_amount_idx
+    ON reimbursements (amount);
+
+-- findByUsernameStartingWith (LIKE 'abc%') - the UNIQUE index on username can't do prefix searches
+-- unless the DB uses the C collation, text_pattern_ops compares character by character so it can
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_username_pattern_idx
+    ON users (username text_pattern_ops);
@@ -0,0 +1,9 @@
+-- Claims written to the DB by the write-behind ingestion log (ReimbursementIngestion) remember
+-- their place in that log, so replaying the log after a crash never inserts one twice.
+-- NULL for every other row (Postgres lets a UNIQUE index hold any number of NULLs).
+ALTER TABLE reimbursements ADD COLUMN IF NOT EXISTS ingest_seq BIGINT;
+
+-- Not CONCURRENTLY like V2: Flyway won't mix that with the ALTER above in one migration,
+-- and the column is all NULLs right now, so the build is quick anyway
+CREATE UNIQUE INDEX IF NOT EXISTS reimbursements_ingest_seq_uidx
+    ON reimbursements (ingest_seq);
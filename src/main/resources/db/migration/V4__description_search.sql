@@ -0,0 +1,6 @@
+-- Full-text search over descriptions (ReimbursementDAO.searchDescriptions).
+-- A STORED generated column: Postgres fills it in on every INSERT and UPDATE of description,
+-- so every way a claim gets in (one at a time, batches, write-behind) keeps it up to date without any app code.
+-- Adding it rewrites the table once. The entity doesn't map it (ddl-auto=validate doesn't mind extra columns).
+ALTER TABLE reimbursements ADD COLUMN IF NOT EXISTS description_tsv tsvector
+    GENERATED ALWAYS AS (to_tsvector('english', coalesce(description, ''))) STORED;
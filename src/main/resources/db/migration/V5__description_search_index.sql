@@ -0,0 +1,4 @@
+-- The GIN index behind description_tsv @@ query, in its own migration so it can be built
+-- CONCURRENTLY like the V2 indexes (Flyway runs this one outside a transaction because of it).
+CREATE INDEX CONCURRENTLY IF NOT EXISTS reimbursements_description_tsv_idx
+    ON reimbursements USING GIN (description_tsv);
@@ -0,0 +1,14 @@
+-- The version numbers behind the ETags on the list endpoints (check ChangeVersions).
+-- They live here, not in each app's memory, so every node hands out the same ETag for the same data.
+-- scope_key = a user's id for that user's reimbursements, 0 for the user list.
+-- Rows are never deleted (a deleted user's row keeps counting), so the versions only ever go up.
+CREATE TABLE IF NOT EXISTS change_versions (
+    scope_key integer PRIMARY KEY,
+    version   bigint NOT NULL
+);
+
+INSERT INTO change_versions (scope_key, version)
+SELECT 0, 0
+UNION ALL
+SELECT user_id, 0 FROM users
+ON CONFLICT (scope_key) DO NOTHING;
@@ -0,0 +1,5 @@
+-- One version row for the list of ALL reimbursements (check ChangeVersions), so its ETag is a primary key lookup
+-- instead of a SUM over every user's row. It starts at that sum, so the ETags clients already have stay valid.
+INSERT INTO change_versions (scope_key, version)
+SELECT -1, COALESCE(SUM(version), 0) FROM change_versions WHERE scope_key > 0
+ON CONFLICT (scope_key) DO NOTHING;
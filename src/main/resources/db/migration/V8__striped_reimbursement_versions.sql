@@ -0,0 +1,6 @@
+-- Split the all-reimbursements version (row -1 from V7) over 64 rows, -1 to -64 (check ChangeVersions).
+-- With one row, every reimbursement write in the cluster queued up on its lock.
+-- Row -1 keeps its value and the new ones start at 0, so the sum (the ETag) doesn't change for clients that have it.
+INSERT INTO change_versions (scope_key, version)
+SELECT -s, 0 FROM generate_series(2, 64) AS s
+ON CONFLICT (scope_key) DO NOTHING;
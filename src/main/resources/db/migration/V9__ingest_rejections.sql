@@ -0,0 +1,12 @@
+-- Write-behind claims that were accepted (202) but could never be inserted (check ReimbursementIngestion),
+-- ex: the user was deleted before the claim reached the DB. Kept here instead of only in a log line,
+-- so GET /reimbursements/ingest/{ingestId} can tell the client what happened to it (from any node).
+-- text, not varchar(255): a description too long for the reimbursements table is one of the reasons a claim ends up here
+CREATE TABLE IF NOT EXISTS ingest_rejections (
+    ingest_seq  bigint PRIMARY KEY,
+    user_id     integer NOT NULL,
+    amount      integer NOT NULL,
+    description text NOT NULL,
+    reason      text NOT NULL,
+    rejected_at timestamp(6) with time zone NOT NULL
+);
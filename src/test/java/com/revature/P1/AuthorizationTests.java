@@ -0,0 +1,42 @@
+package com.revature.P1;
+
+import com.revature.services.TokenService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//The AuthInterceptor should answer with real status codes: 401 for no/bad token, 403 for the wrong role
+@SpringBootTest
+@AutoConfigureMockMvc
+class AuthorizationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Test
+    void missingOrBadTokenIs401() throws Exception {
+        mockMvc.perform(get("/users/search/:a")).andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/users")).andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/users").header("Authorization", "Bearer not.avalidtoken")).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void nonAdminIs403OnAdminEndpoints() throws Exception {
+        String token = "Bearer " + tokenService.issue(5, "employee", "employee");
+        mockMvc.perform(get("/users").header("Authorization", token)).andExpect(status().isForbidden());
+        mockMvc.perform(get("/users/search/:a").header("Authorization", token)).andExpect(status().isOk());
+    }
+
+    @Test
+    void publicEndpointsNeedNoToken() throws Exception {
+        mockMvc.perform(get("/reimbursements/amount/nobody")).andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,121 @@
+package com.revature.P1;
+
+import com.revature.config.SlowQueryLog;
+import com.revature.daos.ReimbursementDAO;
+import com.revature.daos.UserDAO;
+import com.revature.services.ReimbursementService;
+import com.revature.services.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.StringJoiner;
+
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//POST /reimbursements/batch - one result per item, bad items skipped (not the whole batch), INSERTs sent as JDBC batches
+//(threshold 0 makes the slow query log record every statement, with its batch size)
+@SpringBootTest(properties = {"ratelimit.enabled=false", "profiler.slow-query.threshold-ms=0", "profiler.slow-query.explain=false"})
+@AutoConfigureMockMvc
+class BatchSubmitTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ReimbursementService reimbursementService;
+
+    @Autowired
+    private SlowQueryLog slowQueryLog;
+
+    @Autowired
+    private UserDAO uDAO;
+
+    @Autowired
+    private ReimbursementDAO rDAO;
+
+    @BeforeEach
+    void seed() {
+        userService.registerUser("Batch", "One", "batchone", "password", "employee");
+        userService.registerUser("Batch", "Two", "batchtwo", "password", "employee");
+    }
+
+    @AfterEach
+    void cleanUp() {
+        rDAO.deleteAll();
+        uDAO.findAll().forEach(u -> userService.deleteUser(u.getUserId()));
+    }
+
+    @Test
+    void reportsEveryItemAndOnlyInsertsTheGoodOnes() throws Exception {
+        String batch = "[" +
+                "{\"description\":\"hotel\",\"amount\":100,\"username\":\"batchone\"}," +
+                "{\"description\":\" \",\"amount\":10,\"username\":\"batchone\"}," +
+                "{\"description\":\"free lunch\",\"amount\":0,\"username\":\"batchone\"}," +
+                "{\"description\":\"taxi\",\"amount\":30,\"username\":\"nobody\"}," +
+                "null," +
+                "{\"description\":\"train\",\"amount\":45,\"username\":\"batchtwo\"}]";
+
+        mockMvc.perform(post("/reimbursements/batch").contentType(MediaType.APPLICATION_JSON).content(batch))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(6))
+                .andExpect(jsonPath("$[0].reimbursementId").isNumber())
+                .andExpect(jsonPath("$[0].error").value(nullValue()))
+                .andExpect(jsonPath("$[1].error").value("Description cannot be empty"))
+                .andExpect(jsonPath("$[2].error").value("Amount must be greater than 0"))
+                .andExpect(jsonPath("$[3].error").value("No user found with username: nobody"))
+                .andExpect(jsonPath("$[3].reimbursementId").value(nullValue()))
+                .andExpect(jsonPath("$[4].error").value("Reimbursement cannot be empty"))
+                .andExpect(jsonPath("$[5].index").value(5))
+                .andExpect(jsonPath("$[5].reimbursementId").isNumber());
+
+        assertEquals(2, rDAO.count());
+        assertEquals(100, reimbursementService.getTotalPendingAmount("batchone"));
+        assertEquals(45, reimbursementService.getTotalPendingAmount("batchtwo"));
+    }
+
+    @Test
+    void rejectsEmptyAndOversizedBatches() throws Exception {
+        mockMvc.perform(post("/reimbursements/batch").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/reimbursements/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content(claims(ReimbursementService.MAX_BATCH_SIZE + 1)))
+                .andExpect(status().isBadRequest());
+        assertEquals(0, rDAO.count());
+    }
+
+    @Test
+    void insertsGoOutAsJdbcBatches() throws Exception {
+        slowQueryLog.clear();
+        mockMvc.perform(post("/reimbursements/batch").contentType(MediaType.APPLICATION_JSON).content(claims(120)))
+                .andExpect(status().isOk());
+
+        //hibernate.jdbc.batch_size=50 -> 3 executeBatch calls, not 120 INSERTs
+        List<Integer> batchSizes = slowQueryLog.recent(500).stream()
+                .filter(q -> q.sql().toLowerCase().startsWith("insert into project1.reimbursements"))
+                .map(SlowQueryLog.SlowQuery::batchSize).sorted().toList();
+        assertEquals(List.of(20, 50, 50), batchSizes);
+        assertEquals(120, rDAO.count());
+    }
+
+    private static String claims(int count) {
+        StringJoiner json = new StringJoiner(",", "[", "]");
+        for (int i = 0; i < count; i++) {
+            json.add("{\"description\":\"claim " + i + "\",\"amount\":" + (i + 1) + ",\"username\":\"batch" + (i % 2 == 0 ? "one" : "two") + "\"}");
+        }
+        return json.toString();
+    }
+}
@@ -0,0 +1,172 @@
+package com.revature.P1;
+
+import com.revature.daos.ReimbursementDAO;
+import com.revature.daos.UserDAO;
+import com.revature.models.DTOs.BulkResolveDTO;
+import com.revature.models.Reimbursement;
+import com.revature.models.User;
+import com.revature.services.ReimbursementService;
+import com.revature.services.StatusAudit;
+import com.revature.services.TokenService;
+import com.revature.services.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//PUT /reimbursements/bulk, by ids and by filter - on a real Postgres, since the UPDATE ... RETURNING statements
+//it runs are Postgres-only (check TestPostgres)
+@EnabledIf("com.revature.P1.TestPostgres#available")
+@SpringBootTest(properties = "ratelimit.enabled=false")
+@AutoConfigureMockMvc
+class BulkResolvePostgresTests {
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        TestPostgres.properties(registry);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ReimbursementService reimbursementService;
+
+    @Autowired
+    private StatusAudit statusAudit;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private UserDAO uDAO;
+
+    @Autowired
+    private ReimbursementDAO rDAO;
+
+    @Autowired
+    private PlatformTransactionManager txManager;
+
+    private String admin;
+    private Reimbursement hotel;
+    private Reimbursement taxi;
+    private Reimbursement train;
+    private Reimbursement approved;
+
+    @BeforeEach
+    void seed() {
+        userService.registerUser("Bulk", "One", "bulkone", "password", "admin");
+        userService.registerUser("Bulk", "Two", "bulktwo", "password", "employee");
+        hotel = reimbursementService.addReimbursement("hotel", 200, "bulkone");
+        taxi = reimbursementService.addReimbursement("taxi", 20, "bulkone");
+        train = reimbursementService.addReimbursement("train", 50, "bulktwo");
+        approved = reimbursementService.addReimbursement("lunch", 15, "bulktwo");
+        reimbursementService.resolveReimbursement(approved.getReimbursementId(), "approved", "pending", 1);
+        admin = "Bearer " + tokenService.issue(9, "bulkone", "admin");
+    }
+
+    @AfterEach
+    void cleanUp() {
+        rDAO.deleteAll();
+        uDAO.findAll().forEach(u -> userService.deleteUser(u.getUserId()));
+    }
+
+    @Test
+    void resolvesByIdsAndSkipsTheRest() throws Exception {
+        //taxi twice (counted once), one that's already approved, one that doesn't exist
+        bulk("{\"status\":\"approved\",\"reimbursementIds\":[" + hotel.getReimbursementId() + "," + taxi.getReimbursementId() + ","
+                + taxi.getReimbursementId() + "," + approved.getReimbursementId() + ",999999]}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.resolved", containsInAnyOrder(hotel.getReimbursementId(), taxi.getReimbursementId())))
+                .andExpect(jsonPath("$.skipped").value(2));
+
+        assertEquals("approved", rDAO.findByReimbursementId(hotel.getReimbursementId()).getStatus());
+        assertEquals("approved", rDAO.findByReimbursementId(taxi.getReimbursementId()).getStatus());
+        assertEquals("pending", rDAO.findByReimbursementId(train.getReimbursementId()).getStatus());
+        assertEquals(0, reimbursementService.getTotalPendingAmount("bulkone"));
+        assertEquals(50, reimbursementService.getTotalPendingAmount("bulktwo"));
+        assertEquals(9, statusAudit.history(hotel.getReimbursementId(), 10).getFirst().adminUserId());
+
+        //a second time, nothing is pending anymore
+        bulk("{\"status\":\"denied\",\"reimbursementIds\":[" + hotel.getReimbursementId() + "]}")
+                .andExpect(jsonPath("$.resolved.length()").value(0))
+                .andExpect(jsonPath("$.skipped").value(1));
+    }
+
+    @Test
+    void resolvesByFilter() throws Exception {
+        //one user's, in an amount range
+        bulk("{\"status\":\"denied\",\"username\":\"bulkone\",\"minAmount\":100}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.resolved", containsInAnyOrder(hotel.getReimbursementId())))
+                .andExpect(jsonPath("$.skipped").value(0));
+        assertEquals("denied", rDAO.findByReimbursementId(hotel.getReimbursementId()).getStatus());
+        assertEquals(20, reimbursementService.getTotalPendingAmount("bulkone"));
+
+        //everyone's, by amount only (the approved 15 isn't pending, so it's left alone)
+        bulk("{\"status\":\"approved\",\"minAmount\":10,\"maxAmount\":50}")
+                .andExpect(jsonPath("$.resolved", containsInAnyOrder(taxi.getReimbursementId(), train.getReimbursementId())));
+        assertEquals(0, reimbursementService.getTotalPendingAmount("bulkone"));
+        assertEquals(0, reimbursementService.getTotalPendingAmount("bulktwo"));
+    }
+
+    @Test
+    void aFilterMatchingTooManyIsRejectedAndChangesNothing() throws Exception {
+        User many = userService.registerUser("Bulk", "Many", "bulkmany", "password", "employee");
+        List<Reimbursement> claims = new ArrayList<>();
+        for (int i = 0; i <= ReimbursementService.MAX_BATCH_SIZE; i++) {
+            claims.add(new Reimbursement("claim " + i, 1, many));
+        }
+        rDAO.saveAll(claims);
+
+        bulk("{\"status\":\"approved\",\"username\":\"bulkmany\"}").andExpect(status().isBadRequest());
+        assertEquals(ReimbursementService.MAX_BATCH_SIZE + 1, rDAO.findByUserAndStatus(many, "pending").size());
+    }
+
+    @Test
+    void entitiesLoadedEarlierInTheTransactionAreNotStale() {
+        String status = new TransactionTemplate(txManager).execute(tx -> {
+            Reimbursement loaded = rDAO.findById(hotel.getReimbursementId()).orElseThrow();
+            assertEquals("pending", loaded.getStatus());
+            reimbursementService.resolveReimbursements(
+                    new BulkResolveDTO(List.of(hotel.getReimbursementId()), null, null, null, "approved"), 9);
+            return rDAO.findById(hotel.getReimbursementId()).orElseThrow().getStatus();
+        });
+        assertEquals("approved", status);
+    }
+
+    @Test
+    void rejectsBadRequests() throws Exception {
+        bulk("{\"status\":\"pending\",\"reimbursementIds\":[1]}").andExpect(status().isBadRequest());
+        bulk("{\"status\":\"approved\"}").andExpect(status().isBadRequest());
+        bulk("{\"status\":\"approved\",\"reimbursementIds\":[1],\"username\":\"bulkone\"}").andExpect(status().isBadRequest());
+        bulk("{\"status\":\"approved\",\"minAmount\":10,\"maxAmount\":5}").andExpect(status().isBadRequest());
+    }
+
+    private ResultActions bulk(String json) throws Exception {
+        return mockMvc.perform(put("/reimbursements/bulk").header("Authorization", admin)
+                .contentType(MediaType.APPLICATION_JSON).content(json));
+    }
+}
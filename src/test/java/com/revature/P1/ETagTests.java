@@ -0,0 +1,234 @@
+package com.revature.P1;
+
+import com.revature.daos.ChangeVersionDAO;
+import com.revature.daos.ReimbursementDAO;
+import com.revature.daos.UserDAO;
+import com.revature.models.ChangeVersion;
+import com.revature.models.Reimbursement;
+import com.revature.services.ChangeVersions;
+import com.revature.services.ReimbursementService;
+import com.revature.services.TokenService;
+import com.revature.services.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//Polling with If-None-Match should get a 304 (after one small version query) until something actually changes - on any node
+@SpringBootTest
+@AutoConfigureMockMvc
+class ETagTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ReimbursementService reimbursementService;
+
+    @Autowired
+    private UserDAO uDAO;
+
+    @Autowired
+    private ReimbursementDAO rDAO;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private EntityManagerFactory emf;
+
+    @Autowired
+    private ChangeVersionDAO changeVersionDAO;
+
+    @Autowired
+    private ChangeVersions changeVersions;
+
+    @Autowired
+    private PlatformTransactionManager txManager;
+
+    private String adminToken;
+
+    @BeforeEach
+    void seed() {
+        userService.registerUser("Etag", "Admin", "etagadmin", "password", "admin");
+        userService.registerUser("Etag", "Other", "etagother", "password", "employee");
+        reimbursementService.addReimbursement("lunch", 20, "etagadmin");
+        adminToken = tokenService.issue(1, "etagadmin", "admin");
+    }
+
+    //through the service, so the UserCache/UsernameIndex forget these usernames too (every test re-registers them)
+    @AfterEach
+    void cleanUp() {
+        rDAO.deleteAll();
+        uDAO.findAll().forEach(u -> userService.deleteUser(u.getUserId()));
+    }
+
+    @Test
+    void unchangedUserListIsNotModifiedWithOneSmallQuery() throws Exception {
+        String etag = etagOf("/users");
+
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        mockMvc.perform(get("/users").header("Authorization", "Bearer " + adminToken).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        assertEquals(1, stats.getPrepareStatementCount()); //the version, not the users
+
+        userService.registerUser("Etag", "New", "etagnew", "password", "employee");
+        assertChanged("/users", etag);
+    }
+
+    @Test
+    void unchangedReimbursementPagesAreNotModifiedWithOneSmallQuery() throws Exception {
+        String url = "/reimbursements/all/false";
+        String etag = etagOf(url);
+
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        assertNotModified(url, etag);
+        assertEquals(1, stats.getPrepareStatementCount()); //one version row, however many users there are
+
+        reimbursementService.addReimbursement("taxi", 30, "etagother");
+        assertChanged(url, etag);
+    }
+
+    @Test
+    void userListChangesOnlyWhenThatUsersReimbursementsChange() throws Exception {
+        String url = "/reimbursements/user/false/etagadmin";
+        String etag = etagOf(url);
+        assertNotModified(url, etag);
+
+        //someone else's reimbursement doesn't touch this user's list
+        reimbursementService.addReimbursement("taxi", 30, "etagother");
+        assertNotModified(url, etag);
+
+        reimbursementService.addReimbursement("hotel", 150, "etagadmin");
+        assertChanged(url, etag);
+    }
+
+    @Test
+    void resolvingChangesTheAllPages() throws Exception {
+        String url = "/reimbursements/all/true";
+        String etag = etagOf(url);
+        String userEtag = etagOf("/reimbursements/user/true/etagadmin");
+        assertNotModified(url, etag);
+
+        Reimbursement r = rDAO.findAll().get(0);
+        reimbursementService.resolveReimbursement(r.getReimbursementId(), "approved", "pending", 1);
+        assertChanged(url, etag);
+        assertChanged("/reimbursements/user/true/etagadmin", userEtag);
+    }
+
+    @Test
+    void deletingAUserChangesTheUserList() throws Exception {
+        String etag = etagOf("/users");
+        userService.deleteUser(uDAO.findByUsername("etagother").get(0).getUserId());
+        assertChanged("/users", etag);
+    }
+
+    @Test
+    void changesMadeByAnotherNodeAreSeen() throws Exception {
+        String url = "/reimbursements/user/false/etagadmin";
+        String etag = etagOf(url);
+        String allEtag = etagOf("/reimbursements/all/false");
+
+        //another instance of the app, on the same DB (its own ChangeVersions, nothing shared in memory)
+        ChangeVersions otherNode = new ChangeVersions(changeVersionDAO);
+        new TransactionTemplate(txManager).executeWithoutResult(status ->
+                otherNode.reimbursementsChanged(uDAO.findByUsername("etagadmin").get(0).getUserId()));
+
+        assertChanged(url, etag);
+        assertChanged("/reimbursements/all/false", allEtag);
+        assertEquals(otherNode.userReimbursementsETag(uDAO.findByUsername("etagadmin").get(0).getUserId()), etagOf(url));
+    }
+
+    @Test
+    void aRolledBackChangeDoesntChangeTheETag() throws Exception {
+        String url = "/reimbursements/user/false/etagadmin";
+        String etag = etagOf(url);
+        try {
+            new TransactionTemplate(txManager).executeWithoutResult(status -> {
+                reimbursementService.addReimbursement("never happened", 10, "etagadmin");
+                throw new IllegalStateException("rolled back");
+            });
+        } catch (IllegalStateException expected) {
+        }
+        assertNotModified(url, etag);
+    }
+
+    @Test
+    void writesForDifferentUsersDontShareOneVersionRow() {
+        //the all-reimbursements version is spread over stripe rows (negative keys) - two neighbouring users
+        //each bump one stripe, and not the same one (so their writes don't queue up on one row lock)
+        Map<Integer, Long> before = stripes();
+        bumpReimbursements(41);
+        Map<Integer, Long> afterFirst = stripes();
+        bumpReimbursements(42);
+        Map<Integer, Long> afterSecond = stripes();
+
+        List<Integer> first = changed(before, afterFirst);
+        List<Integer> second = changed(afterFirst, afterSecond);
+        assertEquals(1, first.size());
+        assertEquals(1, second.size());
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    void versionsCanOnlyBeBumpedInsideATransaction() {
+        assertThrows(IllegalStateException.class, () -> new ChangeVersions(changeVersionDAO).reimbursementsChanged(1));
+    }
+
+    private void bumpReimbursements(int userId) {
+        new TransactionTemplate(txManager).executeWithoutResult(status -> changeVersions.reimbursementsChanged(userId));
+    }
+
+    private Map<Integer, Long> stripes() {
+        return changeVersionDAO.findAll().stream().filter(v -> v.getScopeKey() < 0)
+                .collect(Collectors.toMap(ChangeVersion::getScopeKey, ChangeVersion::getVersion));
+    }
+
+    private static List<Integer> changed(Map<Integer, Long> before, Map<Integer, Long> after) {
+        return after.keySet().stream().filter(k -> !after.get(k).equals(before.get(k))).toList();
+    }
+
+    private String etagOf(String url) throws Exception {
+        String etag = mockMvc.perform(get(url).header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotNull(etag);
+        return etag;
+    }
+
+    private void assertNotModified(String url, String etag) throws Exception {
+        mockMvc.perform(get(url).header("Authorization", "Bearer " + adminToken).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
+    private void assertChanged(String url, String etag) throws Exception {
+        mockMvc.perform(get(url).header("Authorization", "Bearer " + adminToken).header("If-None-Match", etag))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,159 @@
+package com.revature.P1;
+
+import com.revature.services.ReimbursementService;
+import com.revature.services.UserService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*END-TO-END LOAD TEST - starts the whole app (on an in-memory DB) and drives a realistic mix of HTTP traffic at it
+
+ Logs in as an admin first, and sends that token with every request (like the front end does)
+ Reports throughput, latency percentiles + histograms and error rates per endpoint
+ (printed, and written to target/loadtest/report.json), then FAILS if any endpoint breaks its
+ limits in loadtest-thresholds.properties
+
+ Run with: mvn test -Ploadtest  (optionally -Dloadtest.concurrency=100 -Dloadtest.seconds=60) */
+@Tag("loadtest")
+class HttpLoadTests {
+
+    private static final int USERS = 100;
+    private static final int REIMBURSEMENTS_PER_USER = 20;
+
+    private static ConfigurableApplicationContext ctx;
+    private static String base;
+    private static volatile String token; //the admin's login token, sent on every request
+
+    private final int concurrency = Integer.getInteger("loadtest.concurrency", 50);
+    private final int seconds = Integer.getInteger("loadtest.seconds", 20);
+
+    @BeforeAll
+    static void startApp() {
+        ctx = new SpringApplicationBuilder(P1Application.class).properties(
+                "server.port=0",
+                "spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS project1",
+                "limits.enabled=false", "ratelimit.enabled=false", //measure the app itself, not the limits in front of it
+                "logging.level.root=WARN").run();
+        base = "http://localhost:" + ctx.getEnvironment().getProperty("local.server.port");
+
+        UserService users = ctx.getBean(UserService.class);
+        ReimbursementService reimbursements = ctx.getBean(ReimbursementService.class);
+        users.registerUser("Load", "Admin", "loadadmin", "password", "admin");
+        for (int u = 0; u < USERS; u++) {
+            users.registerUser("Load", "User" + u, "load" + u, "password", "employee");
+            for (int r = 0; r < REIMBURSEMENTS_PER_USER; r++) {
+                reimbursements.addReimbursement("seeded claim " + r, 10 + r, "load" + u);
+            }
+        }
+    }
+
+    @AfterAll
+    static void stopApp() {
+        ctx.close();
+    }
+
+    @Test
+    void mixedTrafficStaysWithinThresholds() throws Exception {
+        LoadDriver driver = new LoadDriver(HttpClient.newBuilder());
+
+        //log in once before the run, so the admin-only endpoints work from the start
+        HttpResponse<String> login = driver.client().send(login(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, login.statusCode(), login.body());
+        token = login.headers().firstValue("Authorization").orElseThrow();
+
+        LoadDriver.Result result = driver.run("http-load-test", mix(), concurrency, Duration.ofSeconds(5), Duration.ofSeconds(seconds));
+        System.out.println(result.toTable());
+
+        Path out = Path.of("target", "loadtest", "report.json");
+        Files.createDirectories(out.getParent());
+        Files.writeString(out, result.toJson());
+
+        //check every endpoint against its thresholds, and report ALL the failures at once
+        Properties limits = new Properties();
+        try (InputStream in = getClass().getResourceAsStream("/loadtest-thresholds.properties")) {
+            limits.load(in);
+        }
+        List<String> failures = new ArrayList<>();
+        result.endpoints().forEach((name, stats) -> {
+            double maxP99 = Double.parseDouble(limits.getProperty(name + ".p99-ms", limits.getProperty("default.p99-ms")));
+            double maxErrors = Double.parseDouble(limits.getProperty(name + ".error-rate", limits.getProperty("default.error-rate")));
+            double p99 = stats.latency().percentileMillis(0.99);
+            if (p99 > maxP99) {
+                failures.add(String.format("%s p99 %.1fms > %.1fms", name, p99, maxP99));
+            }
+            if (stats.errorRate() > maxErrors) {
+                failures.add(String.format("%s error rate %.3f%% > %.3f%%", name, stats.errorRate() * 100, maxErrors * 100));
+            }
+        });
+        double minThroughput = Double.parseDouble(limits.getProperty("min-throughput"));
+        if (result.throughput() < minThroughput) {
+            failures.add(String.format("throughput %.1f req/s < %.1f req/s", result.throughput(), minThroughput));
+        }
+        assertTrue(failures.isEmpty(), "Load test thresholds broken: " + failures);
+    }
+
+    //every controller, weighted roughly like a normal day (mostly employees checking their reimbursements)
+    private List<LoadDriver.Endpoint> mix() {
+        return List.of(
+                new LoadDriver.Endpoint("login", 5, HttpLoadTests::login),
+                new LoadDriver.Endpoint("list-users", 5, () -> get("/users")),
+                new LoadDriver.Endpoint("search-users", 15, () -> get("/users/search/:load" + ThreadLocalRandom.current().nextInt(10))),
+                new LoadDriver.Endpoint("submit-reimbursement", 15, () -> request(
+                                "/reimbursements?description=load%20test&amount=25&username=" + randomUser())
+                        .POST(HttpRequest.BodyPublishers.noBody()).build()),
+                //resolving a random claim can lose to an earlier resolve - that 409 is expected, not an error
+                new LoadDriver.Endpoint("resolve-reimbursement", 10, () -> request(
+                                "/reimbursements?reimbursementid=" + randomReimbursementId() + "&status=approved")
+                        .PUT(HttpRequest.BodyPublishers.noBody()).build(),
+                        status -> status == 200 || status == 409),
+                new LoadDriver.Endpoint("user-reimbursements", 25, () -> get("/reimbursements/user/false/" + randomUser())),
+                new LoadDriver.Endpoint("user-pending-reimbursements", 20, () -> get("/reimbursements/user/true/" + randomUser())),
+                new LoadDriver.Endpoint("pending-amount", 5, () -> get("/reimbursements/amount/" + randomUser()))
+        );
+    }
+
+    private static HttpRequest login() {
+        return HttpRequest.newBuilder(URI.create(base + "/auth"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"loadadmin\",\"password\":\"password\"}"))
+                .build();
+    }
+
+    private static HttpRequest get(String path) {
+        return request(path).GET().build();
+    }
+
+    //every request carries the admin's token, like a logged in front end would
+    private static HttpRequest.Builder request(String path) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(base + path));
+        return token == null ? builder : builder.header("Authorization", token);
+    }
+
+    private static String randomUser() {
+        return "load" + ThreadLocalRandom.current().nextInt(USERS);
+    }
+
+    //the seeded reimbursements have ids 1..USERS*REIMBURSEMENTS_PER_USER
+    private static int randomReimbursementId() {
+        return 1 + ThreadLocalRandom.current().nextInt(USERS * REIMBURSEMENTS_PER_USER);
+    }
+}
@@ -0,0 +1,90 @@
+package com.revature.P1;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*A small, thread-safe latency histogram for our benchmarks and load tests
+
+ Latencies are stored in microseconds, in log-linear buckets: every power of two is split into 32 buckets,
+ so any value is off by at most ~3%. Recording is just an array increment - no locks, no allocation */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 32;
+    private static final int SUB_BITS = 5;
+    private static final int BUCKETS = 40 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+
+    public void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        counts.incrementAndGet(indexOf(micros));
+        total.increment();
+        sumMicros.add(micros);
+    }
+
+    //add everything another histogram recorded into this one
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = other.counts.get(i);
+            if (c > 0) {
+                counts.addAndGet(i, c);
+            }
+        }
+        total.add(other.total.sum());
+        sumMicros.add(other.sumMicros.sum());
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    public double meanMillis() {
+        long n = count();
+        return n == 0 ? 0 : sumMicros.sum() / 1000.0 / n;
+    }
+
+    //ex: percentileMillis(0.99) = p99 latency
+    public double percentileMillis(double p) {
+        long n = count();
+        if (n == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(p * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return upperBoundOf(i) / 1000.0;
+            }
+        }
+        return upperBoundOf(BUCKETS - 1) / 1000.0;
+    }
+
+    //the counts of every non-empty bucket, as {upperBoundMicros, count} pairs (for reports)
+    public long[][] buckets() {
+        return java.util.stream.IntStream.range(0, BUCKETS)
+                .filter(i -> counts.get(i) > 0)
+                .mapToObj(i -> new long[]{upperBoundOf(i), counts.get(i)})
+                .toArray(long[][]::new);
+    }
+
+    private static int indexOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(micros)) - SUB_BITS;
+        int index = (shift + 1) * SUB_BUCKETS + (int) ((micros >> shift) - SUB_BUCKETS);
+        return Math.min(index, BUCKETS - 1);
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index + 1;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long sub = index % SUB_BUCKETS + SUB_BUCKETS;
+        return (sub + 1) << shift;
+    }
+}
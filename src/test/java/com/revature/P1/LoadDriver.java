@@ -0,0 +1,183 @@
+package com.revature.P1;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+/*Drives HTTP traffic at a running copy of the app, and records how each endpoint did
+
+ Give it a MIX of endpoints (each with a weight), how many concurrent clients to simulate, and for how long.
+ Every client is a virtual thread in a loop: pick an endpoint (weighted), send it, record latency + outcome.
+ Used by the benchmarks and load tests */
+public class LoadDriver {
+
+    //One kind of request in the mix
+    //ok = which status codes count as a success (ex: a 409 from a resolve race is expected, not an error)
+    public record Endpoint(String name, int weight, Supplier<HttpRequest> request, IntPredicate ok) {
+        public Endpoint(String name, int weight, Supplier<HttpRequest> request) {
+            this(name, weight, request, status -> status >= 200 && status < 300);
+        }
+    }
+
+    //What happened to one endpoint during the run
+    public static class Stats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+
+        public long requests() {
+            return latency.count();
+        }
+
+        public long errors() {
+            return errors.sum();
+        }
+
+        public double errorRate() {
+            return requests() == 0 ? 0 : (double) errors() / requests();
+        }
+
+        public LatencyHistogram latency() {
+            return latency;
+        }
+    }
+
+    public record Result(String label, double seconds, Map<String, Stats> endpoints) {
+
+        public long totalRequests() {
+            return endpoints.values().stream().mapToLong(Stats::requests).sum();
+        }
+
+        public double throughput() {
+            return totalRequests() / seconds;
+        }
+
+        public double throughput(String endpoint) {
+            return endpoints.get(endpoint).requests() / seconds;
+        }
+
+        //everything merged together - the p99 across every request in the run
+        public double overallPercentileMillis(double p) {
+            LatencyHistogram all = new LatencyHistogram();
+            for (Stats s : endpoints.values()) {
+                all.add(s.latency);
+            }
+            return all.percentileMillis(p);
+        }
+
+        public String toTable() {
+            StringBuilder sb = new StringBuilder(String.format(Locale.ROOT, "%n== %s (%.1fs, %.0f req/s overall) ==%n", label, seconds, throughput()));
+            sb.append(String.format(Locale.ROOT, "%-28s %10s %10s %8s %9s %9s %9s%n", "endpoint", "requests", "req/s", "errors", "p50 ms", "p99 ms", "mean ms"));
+            endpoints.forEach((name, s) -> sb.append(String.format(Locale.ROOT, "%-28s %10d %10.1f %7.2f%% %9.2f %9.2f %9.2f%n",
+                    name, s.requests(), throughput(name), s.errorRate() * 100,
+                    s.latency.percentileMillis(0.50), s.latency.percentileMillis(0.99), s.latency.meanMillis())));
+            return sb.toString();
+        }
+
+        //machine-readable version, so runs can be compared between commits
+        public String toJson() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.ROOT, "{\"label\":\"%s\",\"seconds\":%.3f,\"throughput\":%.2f,\"p99Ms\":%.3f,\"endpoints\":{",
+                    label, seconds, throughput(), overallPercentileMillis(0.99)));
+            List<String> parts = new ArrayList<>();
+            endpoints.forEach((name, s) -> {
+                StringBuilder hist = new StringBuilder();
+                for (long[] b : s.latency.buckets()) {
+                    hist.append(hist.isEmpty() ? "" : ",").append("[").append(b[0]).append(",").append(b[1]).append("]");
+                }
+                parts.add(String.format(Locale.ROOT,
+                        "\"%s\":{\"requests\":%d,\"throughput\":%.2f,\"errors\":%d,\"errorRate\":%.5f,\"p50Ms\":%.3f,\"p90Ms\":%.3f,\"p99Ms\":%.3f,\"maxMs\":%.3f,\"histogramMicros\":[%s]}",
+                        name, s.requests(), throughput(name), s.errors(), s.errorRate(),
+                        s.latency.percentileMillis(0.50), s.latency.percentileMillis(0.90), s.latency.percentileMillis(0.99),
+                        s.latency.percentileMillis(1.0), hist));
+            });
+            return sb.append(String.join(",", parts)).append("}}").toString();
+        }
+    }
+
+    private final HttpClient client;
+
+    public LoadDriver() {
+        this(HttpClient.newBuilder());
+    }
+
+    //pass in a builder to customize the client (ex: a cookie jar for logged-in sessions)
+    public LoadDriver(HttpClient.Builder builder) {
+        this.client = builder
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    public HttpClient client() {
+        return client;
+    }
+
+    public Result run(String label, List<Endpoint> mix, int concurrency, Duration warmup, Duration duration) throws InterruptedException {
+        //warm up first (JIT, connection pools, caches) and throw those numbers away
+        drive(mix, concurrency, warmup);
+        long start = System.nanoTime();
+        Map<String, Stats> stats = drive(mix, concurrency, duration);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return new Result(label, seconds, stats);
+    }
+
+    private Map<String, Stats> drive(List<Endpoint> mix, int concurrency, Duration duration) throws InterruptedException {
+        Map<String, Stats> stats = new LinkedHashMap<>();
+        for (Endpoint e : mix) {
+            stats.put(e.name(), new Stats());
+        }
+        int totalWeight = mix.stream().mapToInt(Endpoint::weight).sum();
+        long deadline = System.nanoTime() + duration.toNanos();
+
+        ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+        for (int c = 0; c < concurrency; c++) {
+            clients.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    Endpoint e = pick(mix, totalWeight);
+                    Stats s = stats.get(e.name());
+                    long t0 = System.nanoTime();
+                    boolean ok;
+                    try {
+                        HttpResponse<Void> response = client.send(e.request().get(), HttpResponse.BodyHandlers.discarding());
+                        ok = e.ok().test(response.statusCode());
+                    } catch (Exception ex) {
+                        ok = false;
+                    }
+                    s.latency.recordNanos(System.nanoTime() - t0);
+                    if (!ok) {
+                        s.errors.increment();
+                    }
+                }
+            });
+        }
+        clients.shutdown();
+        if (!clients.awaitTermination(duration.toSeconds() + 60, TimeUnit.SECONDS)) {
+            clients.shutdownNow();
+        }
+        return stats;
+    }
+
+    private static Endpoint pick(List<Endpoint> mix, int totalWeight) {
+        int r = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Endpoint e : mix) {
+            r -= e.weight();
+            if (r < 0) {
+                return e;
+            }
+        }
+        return mix.getLast();
+    }
+}
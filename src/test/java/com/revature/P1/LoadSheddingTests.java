@@ -0,0 +1,156 @@
+package com.revature.P1;
+
+import com.revature.aspects.AdaptiveLimiter;
+import com.revature.aspects.ConcurrencyLimitInterceptor;
+import com.revature.aspects.ConcurrencyLimitInterceptor.EndpointClass;
+import com.revature.services.TokenService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//The adaptive limits, and the 503s we send once a class of endpoints is full
+//(limits.window-ms is huge so the limits don't move while we hold their slots by hand)
+@SpringBootTest(properties = "limits.window-ms=3600000")
+@AutoConfigureMockMvc
+class LoadSheddingTests {
+
+    private static final long MS = 1_000_000;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ConcurrencyLimitInterceptor limits;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Test
+    void fullClassGetsA503WithRetryAfter() throws Exception {
+        AdaptiveLimiter adminLists = limits.limiter(EndpointClass.ADMIN_LISTS);
+        String admin = "Bearer " + tokenService.issue(1, "shedadmin", "admin");
+        int held = fill(adminLists, false);
+        try {
+            mockMvc.perform(get("/users").header("Authorization", admin))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "1"));
+            //other classes aren't affected
+            mockMvc.perform(get("/reimbursements/amount/nobody")).andExpect(status().isBadRequest());
+        } finally {
+            release(adminLists, held);
+        }
+        mockMvc.perform(get("/users").header("Authorization", admin)).andExpect(status().isOk());
+    }
+
+    @Test
+    void criticalEndpointsGetPastAFullLimit() throws Exception {
+        AdaptiveLimiter writes = limits.limiter(EndpointClass.WRITES);
+        int held = fill(writes, false);
+        try {
+            mockMvc.perform(post("/reimbursements").param("description", "x").param("amount", "1").param("username", "nobody"))
+                    .andExpect(status().isServiceUnavailable());
+            //resolve is @Critical - it gets in (and then fails for its own reasons)
+            mockMvc.perform(put("/reimbursements").param("reimbursementid", "-1").param("status", "approved")
+                            .param("expected", "pending")
+                            .header("Authorization", "Bearer " + tokenService.issue(1, "shedadmin", "admin")))
+                    .andExpect(status().isBadRequest());
+        } finally {
+            release(writes, held);
+        }
+    }
+
+    @Test
+    void criticalEndpointsGetInWhenOtherClassesFillTheTotal() throws Exception {
+        //the listings and reads have room in their own classes, but between them everyone has used up the shared total
+        AdaptiveLimiter total = limits.total();
+        int held = fill(total, false);
+        String admin = "Bearer " + tokenService.issue(1, "shedadmin", "admin");
+        try {
+            mockMvc.perform(get("/users").header("Authorization", admin)).andExpect(status().isServiceUnavailable());
+            mockMvc.perform(get("/reimbursements/amount/nobody")).andExpect(status().isServiceUnavailable());
+            //the 503s gave their class slots back
+            assertEquals(0, limits.limiter(EndpointClass.ADMIN_LISTS).getInFlight());
+            //resolve is @Critical - the total's headroom is kept for it
+            mockMvc.perform(put("/reimbursements").param("reimbursementid", "-1").param("status", "approved")
+                            .param("expected", "pending").header("Authorization", admin))
+                    .andExpect(status().isBadRequest());
+        } finally {
+            release(total, held);
+        }
+        mockMvc.perform(get("/users").header("Authorization", admin)).andExpect(status().isOk());
+    }
+
+    @Test
+    void limitShrinksWhenLatencyClimbsAndGrowsWhenItsUsed() {
+        AtomicLong clock = new AtomicLong();
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 20, 2, 100, 0.5, 1.0, 0.5, 1000 * MS, clock::get);
+
+        //a busy window at normal latency (half the limit in use) - grows
+        window(limiter, clock, 12, 10 * MS);
+        int normal = limiter.getLimit();
+        assertTrue(normal > 20, "grew to " + normal);
+
+        //latency triples - shrinks
+        window(limiter, clock, 12, 30 * MS);
+        window(limiter, clock, 12, 30 * MS);
+        assertTrue(limiter.getLimit() < normal, "shrank to " + limiter.getLimit());
+
+        //failures cut it straight away
+        int before = limiter.getLimit();
+        assertTrue(limiter.tryAcquire(false));
+        limiter.onSample(MS, true);
+        assertTrue(limiter.getLimit() < before);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void criticalRequestsHaveHeadroom() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 4, 1, 10, 0.5, 1.0, 0.5, 1000 * MS, System::nanoTime);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire(false));
+        }
+        assertFalse(limiter.tryAcquire(false));
+        assertTrue(limiter.tryAcquire(true));
+        assertTrue(limiter.tryAcquire(true));
+        assertFalse(limiter.tryAcquire(true));
+        assertEquals(2, limiter.getRejected());
+    }
+
+    //"count" requests in flight at once, each taking "rtt", then the window closes
+    private static void window(AdaptiveLimiter limiter, AtomicLong clock, int count, long rtt) {
+        for (int i = 0; i < count; i++) {
+            assertTrue(limiter.tryAcquire(false));
+        }
+        clock.addAndGet(1000 * MS);
+        for (int i = 0; i < count; i++) {
+            limiter.onSample(rtt, false);
+        }
+    }
+
+    private static int fill(AdaptiveLimiter limiter, boolean critical) {
+        int held = 0;
+        while (limiter.tryAcquire(critical)) {
+            held++;
+        }
+        return held;
+    }
+
+    private static void release(AdaptiveLimiter limiter, int held) {
+        for (int i = 0; i < held; i++) {
+            limiter.onSample(0, false);
+        }
+    }
+}
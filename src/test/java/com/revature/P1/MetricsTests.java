@@ -0,0 +1,79 @@
+package com.revature.P1;
+
+import com.revature.daos.UserDAO;
+import com.revature.models.User;
+import com.revature.services.TokenService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//Checks that DAO calls and endpoints show up in the metrics, and that they can be scraped
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class MetricsTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private UserDAO uDAO;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @AfterEach
+    void cleanUp() {
+        uDAO.deleteAll();
+    }
+
+    @Test
+    void repositoryCallsAreTimedWithRowCounts() throws Exception {
+        uDAO.save(new User(0, "Metric", "One", "metric1", "password", "admin"));
+        uDAO.save(new User(0, "Metric", "Two", "metric2", "password", "employee"));
+
+        Timer before = registry.find("repository.calls").tags("repository", "UserDAO", "method", "findAllViews").timer();
+        long callsBefore = before == null ? 0 : before.count();
+
+        mockMvc.perform(get("/users").header("Authorization", "Bearer " + tokenService.issue(1, "metric1", "admin")))
+                .andExpect(status().isOk());
+
+        Timer timer = registry.find("repository.calls").tags("repository", "UserDAO", "method", "findAllViews").timer();
+        assertNotNull(timer);
+        assertEquals(callsBefore + 1, timer.count());
+
+        DistributionSummary rows = registry.find("repository.rows").tags("repository", "UserDAO", "method", "findAllViews").summary();
+        assertNotNull(rows);
+        assertTrue(rows.max() >= 2);
+    }
+
+    @Test
+    void prometheusEndpointExposesRepositoryAndEndpointMetrics() throws Exception {
+        uDAO.findAllViews();
+        mockMvc.perform(get("/users")).andExpect(status().isUnauthorized());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("repository_calls_seconds_bucket{")))
+                .andExpect(content().string(containsString("repository_errors_total{")))
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket{")));
+    }
+}
@@ -0,0 +1,96 @@
+package com.revature.P1;
+
+import com.revature.daos.ReimbursementDAO;
+import com.revature.daos.UserDAO;
+import com.revature.models.DTOs.OutgoingReimbursementDTO;
+import com.revature.models.DTOs.ReimbursementPageDTO;
+import com.revature.models.Reimbursement;
+import com.revature.models.User;
+import com.revature.services.ReimbursementService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Keyset pages (getReimbursementPage) - following the "next" cursors has to visit every row exactly once
+@SpringBootTest
+class PaginationTests {
+
+    @Autowired
+    private ReimbursementService reimbursementService;
+
+    @Autowired
+    private UserDAO uDAO;
+
+    @Autowired
+    private ReimbursementDAO rDAO;
+
+    @AfterEach
+    void cleanUp() {
+        rDAO.deleteAll();
+        uDAO.deleteAll();
+    }
+
+    @Test
+    void walkingTheCursorsVisitsEveryRowOnce() {
+        List<Integer> all = seed(53);
+        List<Integer> pendingOnes = rDAO.findByStatus("pending").stream().map(Reimbursement::getReimbursementId).sorted().toList();
+
+        assertEquals(all, walk(false, 10));
+        assertEquals(pendingOnes, walk(true, 10));
+        assertEquals(all, walk(false, 53)); //one exactly full page, then nothing
+    }
+
+    @Test
+    void pageSizeIsCappedAndBadCursorsAreRejected() {
+        seed(ReimbursementService.MAX_PAGE_SIZE + 20);
+
+        ReimbursementPageDTO first = reimbursementService.getReimbursementPage(false, 0, 10_000);
+        assertEquals(ReimbursementService.MAX_PAGE_SIZE, first.getItems().size());
+        ReimbursementPageDTO second = reimbursementService.getReimbursementPage(false, first.getNext(), 10_000);
+        assertEquals(20, second.getItems().size());
+        assertNull(second.getNext());
+
+        assertThrows(IllegalArgumentException.class, () -> reimbursementService.getReimbursementPage(false, -1, 10));
+        assertThrows(IllegalArgumentException.class, () -> reimbursementService.getReimbursementPage(false, 0, 0));
+    }
+
+    //follow "next" until it runs out, and collect every id we were sent (in the order we got them)
+    private List<Integer> walk(boolean pendingOnly, int size) {
+        List<Integer> seen = new ArrayList<>();
+        Integer after = 0;
+        int pages = 0;
+        while (after != null) {
+            ReimbursementPageDTO page = reimbursementService.getReimbursementPage(pendingOnly, after, size);
+            assertTrue(page.getItems().size() <= size);
+            for (OutgoingReimbursementDTO r : page.getItems()) {
+                seen.add(r.getReimbursementId());
+            }
+            after = page.getNext();
+            assertTrue(++pages < 1000, "the cursor never ran out");
+        }
+        return seen;
+    }
+
+    //count reimbursements (every third one approved), returns their ids in order
+    private List<Integer> seed(int count) {
+        User u = uDAO.save(new User(0, "Page", "Walker", "pagewalker", "password", "employee"));
+        List<Reimbursement> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Reimbursement r = new Reimbursement("claim " + i, i + 1, u);
+            if (i % 3 == 0) {
+                r.setStatus("approved");
+            }
+            rows.add(r);
+        }
+        return rDAO.saveAll(rows).stream().map(Reimbursement::getReimbursementId).sorted().toList();
+    }
+}
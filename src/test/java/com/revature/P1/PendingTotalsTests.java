@@ -0,0 +1,154 @@
+package com.revature.P1;
+
+import com.revature.config.ReadRouting;
+import com.revature.daos.ReimbursementDAO;
+import com.revature.daos.UserDAO;
+import com.revature.models.Reimbursement;
+import com.revature.models.User;
+import com.revature.services.PendingTotals;
+import com.revature.services.ReimbursementService;
+import com.revature.services.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.core.Ordered;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.doAnswer;
+
+//The running pending totals - kept in step by the service, and put right by reconcile() when they drift
+@SpringBootTest
+class PendingTotalsTests {
+
+    @Autowired
+    private PendingTotals pendingTotals;
+
+    @Autowired
+    private ReimbursementService reimbursementService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserDAO uDAO;
+
+    @Autowired
+    private ReimbursementDAO rDAO;
+
+    @Autowired
+    private PlatformTransactionManager txManager;
+
+    //a spy, so the race test can run code inside addReimbursement's transaction
+    @SpyBean
+    private ReadRouting readRouting;
+
+    private User user;
+
+    @BeforeEach
+    void seed() {
+        user = userService.registerUser("Pending", "Totals", "pendingtotals", "password", "employee");
+        pendingTotals.reconcile(); //start from a clean slate (other test classes share this DB)
+    }
+
+    @AfterEach
+    void cleanUp() {
+        rDAO.deleteAll();
+        uDAO.findAll().forEach(u -> userService.deleteUser(u.getUserId()));
+    }
+
+    @Test
+    void addResolveAndDeleteKeepTheTotalsInStep() {
+        Reimbursement a = reimbursementService.addReimbursement("hotel", 100, "pendingtotals");
+        reimbursementService.addReimbursement("taxi", 30, "pendingtotals");
+        assertTotals(2, 130);
+
+        reimbursementService.resolveReimbursement(a.getReimbursementId(), "approved", "pending", 1);
+        assertTotals(1, 30);
+        reimbursementService.resolveReimbursement(a.getReimbursementId(), "pending", "approved", 1);
+        assertTotals(2, 130);
+        assertEquals(0, pendingTotals.reconcile());
+
+        userService.deleteUser(user.getUserId());
+        assertTotals(0, 0);
+        assertEquals(0, pendingTotals.reconcile());
+    }
+
+    @Test
+    void aRolledBackDeleteKeepsTheTotals() {
+        reimbursementService.addReimbursement("hotel", 100, "pendingtotals");
+        new TransactionTemplate(txManager).executeWithoutResult(status -> {
+            userService.deleteUser(user.getUserId());
+            assertTotals(1, 100); //not until it commits
+            status.setRollbackOnly();
+        });
+        assertTotals(1, 100);
+        assertEquals(0, pendingTotals.reconcile());
+    }
+
+    @Test
+    void reconcileCorrectsDrift() {
+        reimbursementService.addReimbursement("hotel", 100, "pendingtotals");
+        //a row the totals never heard about, and a change that never happened in the DB
+        rDAO.save(new Reimbursement("sneaked in", 5, user));
+        pendingTotals.adjust(user.getUserId(), 3, 1_000);
+        assertTotals(4, 1_100);
+
+        assertEquals(1, pendingTotals.reconcile());
+        assertTotals(2, 105);
+        assertEquals(0, pendingTotals.reconcile());
+
+        //totals for a user the DB says has nothing pending go back to 0
+        rDAO.deleteAll();
+        assertEquals(1, pendingTotals.reconcile());
+        assertTotals(0, 0);
+    }
+
+    @Test
+    void reconcileBetweenCommitAndAfterCommitDoesNotCountTheChangeTwice() {
+        AtomicInteger corrected = new AtomicInteger(-1);
+        //addReimbursement calls readRouting.wrote() inside its own transaction - hook a reconcile() in there that runs
+        //after the commit but BEFORE PendingTotals applies the change (the row is in the DB, but not in the totals yet)
+        doAnswer(call -> {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public int getOrder() {
+                    return Ordered.HIGHEST_PRECEDENCE;
+                }
+
+                @Override
+                public void afterCompletion(int s) {
+                    corrected.set(CompletableFuture.supplyAsync(pendingTotals::reconcile).join());
+                }
+            });
+            return call.callRealMethod();
+        }).when(readRouting).wrote(user.getUserId());
+
+        reimbursementService.addReimbursement("hotel", 100, "pendingtotals");
+
+        assertEquals(0, corrected.get()); //the user was in flight, so it was left alone
+        assertTotals(1, 100);
+        assertEquals(0, pendingTotals.reconcile());
+    }
+
+    @Test
+    void totalsPastIntegerMaxValueAreSentWhole() {
+        pendingTotals.adjust(user.getUserId(), 2, 3_000_000_000L);
+        assertEquals(3_000_000_000L, reimbursementService.getTotalPendingAmount("pendingtotals"));
+    }
+
+    private void assertTotals(long count, long sum) {
+        PendingTotals.Totals t = pendingTotals.get(user.getUserId());
+        assertEquals(count, t.count(), "count");
+        assertEquals(sum, t.sum(), "sum");
+    }
+}
@@ -0,0 +1,168 @@
+package com.revature.P1;
+
+import com.revature.aspects.TokenBuckets;
+import com.revature.services.TokenService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//Token buckets on their own (with a fake clock), and the 429s from the @RateLimited endpoints
+@SpringBootTest(properties = {
+        "ratelimit.search.employee.capacity=3", "ratelimit.search.employee.per-minute=1",
+        "ratelimit.search.admin.capacity=5", "ratelimit.search.admin.per-minute=1",
+        "ratelimit.submit.anonymous.capacity=2", "ratelimit.submit.anonymous.per-minute=1",
+        "ratelimit.batch.employee.capacity=10", "ratelimit.batch.employee.per-minute=1"})
+@AutoConfigureMockMvc
+class RateLimitTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Test
+    void bucketAllowsABurstThenRefillsAtTheRate() {
+        AtomicLong clock = new AtomicLong(1_000);
+        TokenBuckets buckets = new TokenBuckets(4, 100, clock::get);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, buckets.tryConsume(1, 5, 60));
+        }
+        //60 a minute = one a second
+        assertEquals(1000, buckets.tryConsume(1, 5, 60));
+        clock.addAndGet(400);
+        long wait = buckets.tryConsume(1, 5, 60);
+        assertTrue(wait >= 600 && wait <= 610, "wait " + wait);
+        clock.addAndGet(600);
+        assertEquals(0, buckets.tryConsume(1, 5, 60));
+        assertTrue(buckets.tryConsume(1, 5, 60) > 0);
+
+        //other keys have their own buckets
+        assertEquals(0, buckets.tryConsume(2, 5, 60));
+    }
+
+    @Test
+    void manyTokensAreTakenAllOrNothing() {
+        AtomicLong clock = new AtomicLong(1_000);
+        TokenBuckets buckets = new TokenBuckets(4, 100, clock::get);
+
+        assertEquals(0, buckets.tryConsume(1, 7, 10, 60));
+        //3 left, so 5 more is 2 seconds away - and nothing was taken
+        assertEquals(2000, buckets.tryConsume(1, 5, 10, 60));
+        assertEquals(0, buckets.tryConsume(1, 3, 10, 60));
+        assertEquals(1000, buckets.tryConsume(1, 10, 60));
+
+        //more than the bucket holds could never be granted
+        assertThrows(IllegalArgumentException.class, () -> buckets.tryConsume(2, 11, 10, 60));
+        assertThrows(IllegalArgumentException.class, () -> buckets.tryConsume(2, 0, 10, 60));
+    }
+
+    @Test
+    void frequentTakesStillRefillAtTheFullRate() {
+        AtomicLong clock = new AtomicLong(1_000);
+        TokenBuckets buckets = new TokenBuckets(4, 100, clock::get);
+
+        //someone trying every 10ms for an hour gets the burst, then exactly per-minute a minute -
+        //even when nearly every try gets a token (no bit of the refill can get lost on each take)
+        int fast = 0;
+        int slow = 0;
+        for (int ms = 0; ms <= 3_600_000; ms += 10) {
+            if (buckets.tryConsume(1, 5, 5_900) == 0) {
+                fast++;
+            }
+            if (buckets.tryConsume(2, 1, 1) == 0) {
+                slow++;
+            }
+            clock.addAndGet(10);
+        }
+        assertEquals(5 + 5_900 * 60, fast);
+        assertEquals(1 + 60, slow);
+    }
+
+    @Test
+    void idleBucketsAreEvictedAndMemoryIsBounded() {
+        AtomicLong clock = new AtomicLong();
+        TokenBuckets buckets = new TokenBuckets(4, 40, clock::get);
+
+        for (long key = 0; key < 1_000; key++) {
+            buckets.tryConsume(key, 5, 60);
+        }
+        assertTrue(buckets.size() <= 40, "holding " + buckets.size());
+
+        //a second later every bucket is full again (4 of 5 tokens left + 1 refilled)
+        clock.addAndGet(1_000);
+        buckets.evictIdle();
+        assertEquals(0, buckets.size());
+    }
+
+    @Test
+    void searchIsLimitedPerUserAndRole() throws Exception {
+        String employee = "Bearer " + tokenService.issue(101, "limited", "employee");
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/users/search/:x").header("Authorization", employee)).andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/users/search/:x").header("Authorization", employee))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "60"));
+
+        //another user (an admin, with a bigger burst) isn't affected
+        String admin = "Bearer " + tokenService.issue(102, "limitedadmin", "admin");
+        for (int i = 0; i < 5; i++) {
+            mockMvc.perform(get("/users/search/:x").header("Authorization", admin)).andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/users/search/:x").header("Authorization", admin)).andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void anonymousSubmissionsAreLimitedByAddress() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/reimbursements").param("description", "x").param("amount", "1").param("username", "nobody")
+                            .with(r -> { r.setRemoteAddr("10.9.8.7"); return r; }))
+                    .andExpect(status().isBadRequest());
+        }
+        mockMvc.perform(post("/reimbursements").param("description", "x").param("amount", "1").param("username", "nobody")
+                        .with(r -> { r.setRemoteAddr("10.9.8.7"); return r; }))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void batchesCostOneTokenPerClaim() throws Exception {
+        String employee = "Bearer " + tokenService.issue(103, "batcher", "employee");
+        mockMvc.perform(post("/reimbursements/batch").header("Authorization", employee)
+                        .contentType(MediaType.APPLICATION_JSON).content(claims(6)))
+                .andExpect(status().isOk());
+        //4 claims left of the 10 - a second batch of 6 has to wait, a batch of 11 never fits
+        mockMvc.perform(post("/reimbursements/batch").header("Authorization", employee)
+                        .contentType(MediaType.APPLICATION_JSON).content(claims(6)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "120"));
+        mockMvc.perform(post("/reimbursements/batch").header("Authorization", employee)
+                        .contentType(MediaType.APPLICATION_JSON).content(claims(11)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/reimbursements/batch").header("Authorization", employee)
+                        .contentType(MediaType.APPLICATION_JSON).content(claims(4)))
+                .andExpect(status().isOk());
+    }
+
+    //n claims for a user that doesn't exist (each one fails on its own, the batch is still a 200)
+    private static String claims(int n) {
+        return IntStream.range(0, n).mapToObj(i -> "{\"description\":\"c" + i + "\",\"amount\":1,\"username\":\"nobody\"}")
+                .collect(Collectors.joining(",", "[", "]"));
+    }
+}
@@ -0,0 +1,151 @@
+package com.revature.P1;
+
+import com.revature.config.ReadRouting;
+import com.revature.daos.ReimbursementDAO;
+import com.revature.daos.UserDAO;
+import com.revature.models.Reimbursement;
+import com.revature.models.User;
+import com.revature.services.ReimbursementService;
+import com.revature.services.TokenService;
+import com.revature.services.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*Read/write splitting with two separate in-memory DBs, "rwprimary" and "rwreplica"
+
+ There's no real replication between them - replicate() copies the primary over by hand.
+ Anything written after that is only on the primary, so we can tell which DB a read came from */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rwprimary;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS project1",
+        "datasource.replica.enabled=true",
+        "datasource.replica.url=jdbc:h2:mem:rwreplica;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS project1",
+        "datasource.replica.lag-query=SELECT 0",
+        "datasource.replica.lag-check-ms=3600000"})
+@AutoConfigureMockMvc
+class ReadReplicaTests {
+
+    private static final String URL = "/reimbursements/user/false/rwuser";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ReimbursementService reimbursementService;
+
+    @Autowired
+    private UserDAO uDAO;
+
+    @Autowired
+    private ReimbursementDAO rDAO;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private ReadRouting readRouting;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primary;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replica;
+
+    private User user;
+
+    @BeforeEach
+    void seed() {
+        user = userService.registerUser("Read", "Write", "rwuser", "password", "employee");
+        rDAO.save(new Reimbursement("lunch", 20, user));
+        rDAO.save(new Reimbursement("taxi", 30, user));
+        replicate();
+        //written after the copy, so only the primary has it
+        rDAO.save(new Reimbursement("hotel", 150, user));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        readRouting.setReplicaLagMs(0);
+        rDAO.deleteAll();
+        uDAO.findAll().forEach(u -> userService.deleteUser(u.getUserId()));
+    }
+
+    @Test
+    void readsComeFromTheReplicaAndWritesGoToThePrimary() throws Exception {
+        mockMvc.perform(get(URL)).andExpect(status().isOk()).andExpect(jsonPath("$", hasSize(2)));
+        assertEquals(1, userService.getAllUsers().size());
+
+        reimbursementService.addReimbursement("parking", 10, "rwuser");
+        assertEquals(4, count(primary));
+        assertEquals(2, count(replica));
+    }
+
+    @Test
+    void usersReadTheirOwnWritesFromThePrimary() throws Exception {
+        String token = tokenService.issue(user.getUserId(), "rwuser", "employee");
+        mockMvc.perform(withToken(get(URL), token)).andExpect(jsonPath("$", hasSize(2)));
+
+        reimbursementService.addReimbursement("parking", 10, "rwuser");
+
+        //the user who wrote it sees it right away...
+        mockMvc.perform(withToken(get(URL), token)).andExpect(status().isOk()).andExpect(jsonPath("$", hasSize(4)));
+        //...everyone else still reads the (stale) replica
+        mockMvc.perform(get(URL)).andExpect(jsonPath("$", hasSize(2)));
+        mockMvc.perform(withToken(get(URL), tokenService.issue(user.getUserId() + 1, "someone", "employee")))
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+
+    @Test
+    void aLaggingReplicaIsSkipped() throws Exception {
+        readRouting.setReplicaLagMs(5000);
+        mockMvc.perform(get(URL)).andExpect(jsonPath("$", hasSize(3)));
+
+        readRouting.setReplicaLagMs(0);
+        mockMvc.perform(get(URL)).andExpect(jsonPath("$", hasSize(2)));
+    }
+
+    @Test
+    void onPrimaryReadsThePrimary() {
+        List<?> rows = readRouting.onPrimary(() -> reimbursementService.getUserReimbursements("rwuser"));
+        assertEquals(3, rows.size());
+        assertEquals(2, reimbursementService.getUserReimbursements("rwuser").size());
+    }
+
+    //"replication": replace everything in the replica with a dump of the primary
+    private void replicate() {
+        JdbcTemplate to = new JdbcTemplate(replica);
+        to.execute("DROP ALL OBJECTS");
+        for (String statement : new JdbcTemplate(primary).queryForList("SCRIPT NOPASSWORDS NOSETTINGS", String.class)) {
+            to.execute(statement);
+        }
+    }
+
+    private static int count(DataSource ds) {
+        return new JdbcTemplate(ds).queryForObject("SELECT COUNT(*) FROM project1.reimbursements", Integer.class);
+    }
+
+    private static MockHttpServletRequestBuilder withToken(MockHttpServletRequestBuilder request, String token) {
+        return request.header("Authorization", "Bearer " + token);
+    }
+}
@@ -0,0 +1,137 @@
+package com.revature.P1;
+
+import com.revature.daos.ReimbursementDAO;
+import com.revature.daos.UserDAO;
+import com.revature.models.Reimbursement;
+import com.revature.services.ReimbursementService;
+import com.revature.services.TokenService;
+import com.revature.services.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//GET /reimbursements/search - stemming, ranking, the candidate cap, filters and paging
+//The search is Postgres full-text only, so this needs a real Postgres (check TestPostgres for how to run it)
+@SpringBootTest(properties = "ratelimit.enabled=false")
+@AutoConfigureMockMvc
+@EnabledIf("com.revature.P1.TestPostgres#available")
+class ReimbursementSearchPostgresTests {
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        TestPostgres.properties(registry);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ReimbursementService reimbursementService;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private UserDAO uDAO;
+
+    @Autowired
+    private ReimbursementDAO rDAO;
+
+    private String admin;
+
+    @BeforeEach
+    void seed() {
+        userService.registerUser("Search", "One", "searchone", "password", "employee");
+        userService.registerUser("Search", "Two", "searchtwo", "password", "employee");
+        reimbursementService.addReimbursement("Hotel, then another hotel after the flight was cancelled", 500, "searchone");
+        reimbursementService.addReimbursement("Hotel for the Denver conference", 300, "searchone");
+        reimbursementService.addReimbursement("Taxi to the hotel", 40, "searchone");
+        reimbursementService.addReimbursement("Team lunch", 80, "searchone");
+        reimbursementService.addReimbursement("hotel minibar", 25, "searchtwo");
+        admin = "Bearer " + tokenService.issue(1, "searchadmin", "admin");
+    }
+
+    @AfterEach
+    void cleanUp() {
+        rDAO.deleteAll();
+        uDAO.findAll().forEach(u -> userService.deleteUser(u.getUserId()));
+    }
+
+    @Test
+    void ranksStemmedMatches() throws Exception {
+        //"hotels" is stemmed to hotel. Two hotels beats one, then newest first among the ties
+        mockMvc.perform(get("/reimbursements/search").header("Authorization", admin).param("q", "hotels"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(4))
+                .andExpect(jsonPath("$.items[0].amount").value(500))
+                .andExpect(jsonPath("$.items[1].description").value("hotel minibar"))
+                .andExpect(jsonPath("$.next").value(nullValue()));
+
+        //pages follow the same order
+        mockMvc.perform(get("/reimbursements/search").header("Authorization", admin).param("q", "hotel").param("size", "3").param("page", "1"))
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].description").value("Hotel for the Denver conference"))
+                .andExpect(jsonPath("$.next").value(nullValue()));
+        mockMvc.perform(get("/reimbursements/search").header("Authorization", admin).param("q", "hotel").param("size", "3"))
+                .andExpect(jsonPath("$.items.length()").value(3))
+                .andExpect(jsonPath("$.next").value(1));
+    }
+
+    @Test
+    void webSearchSyntaxAndFilters() throws Exception {
+        mockMvc.perform(get("/reimbursements/search").header("Authorization", admin).param("q", "denver hotel"))
+                .andExpect(jsonPath("$.items.length()").value(1));
+        mockMvc.perform(get("/reimbursements/search").header("Authorization", admin).param("q", "\"taxi to the hotel\""))
+                .andExpect(jsonPath("$.items.length()").value(1));
+        mockMvc.perform(get("/reimbursements/search").header("Authorization", admin).param("q", "hotel -minibar -taxi"))
+                .andExpect(jsonPath("$.items.length()").value(2));
+        mockMvc.perform(get("/reimbursements/search").header("Authorization", admin).param("q", "lunch or minibar"))
+                .andExpect(jsonPath("$.items.length()").value(2));
+
+        mockMvc.perform(get("/reimbursements/search").header("Authorization", admin).param("q", "hotel").param("username", "searchtwo"))
+                .andExpect(jsonPath("$.items.length()").value(1));
+        mockMvc.perform(get("/reimbursements/search").header("Authorization", admin).param("q", "hotel").param("status", "approved"))
+                .andExpect(jsonPath("$.items.length()").value(0));
+    }
+
+    @Test
+    void rejectsBadSearches() throws Exception {
+        mockMvc.perform(get("/reimbursements/search").header("Authorization", admin).param("q", " ")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/reimbursements/search").header("Authorization", admin).param("q", "hotel").param("status", "lost"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/reimbursements/search").header("Authorization", admin).param("q", "hotel").param("page", "10000"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/reimbursements/search").header("Authorization", admin).param("q", "hotel").param("username", "nobody"))
+                .andExpect(status().isBadRequest());
+
+        String employee = "Bearer " + tokenService.issue(2, "searchone", "employee");
+        mockMvc.perform(get("/reimbursements/search").header("Authorization", employee).param("q", "hotel"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void onlyTheNewestCandidatesAreRanked() {
+        //straight to the DAO, with a cap of 2: the 2-hotel claim is the oldest match, so it's not a candidate
+        List<Integer> ids = rDAO.searchDescriptions("hotel", null, null, 2, 10, 0);
+        List<String> found = rDAO.findByReimbursementIdIn(ids).stream().map(Reimbursement::getDescription).sorted().toList();
+        assertEquals(List.of("Taxi to the hotel", "hotel minibar"), found);
+    }
+}
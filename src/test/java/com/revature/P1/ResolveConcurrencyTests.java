@@ -0,0 +1,103 @@
+package com.revature.P1;
+
+import com.revature.daos.ReimbursementDAO;
+import com.revature.daos.UserDAO;
+import com.revature.models.Reimbursement;
+import com.revature.services.ReimbursementService;
+import com.revature.services.StatusConflictException;
+import com.revature.services.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//STRESS TEST - lots of "admins" resolving the same reimbursements at the same time
+//With compare-and-set, exactly one of them should win each reimbursement, and everyone else gets a conflict
+@SpringBootTest
+class ResolveConcurrencyTests {
+
+    private static final int REIMBURSEMENTS = 25;
+    private static final int ADMINS_PER_REIMBURSEMENT = 16;
+
+    @Autowired
+    private ReimbursementService reimbursementService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ReimbursementDAO rDAO;
+
+    @Autowired
+    private UserDAO uDAO;
+
+    @AfterEach
+    void cleanUp() {
+        rDAO.deleteAll();
+        uDAO.deleteAll();
+    }
+
+    @Test
+    void exactlyOneAdminWinsEachReimbursement() throws Exception {
+        userService.registerUser("Stress", "Test", "stressed", "password", "employee");
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < REIMBURSEMENTS; i++) {
+            ids.add(reimbursementService.addReimbursement("claim " + i, 100, "stressed").getReimbursementId());
+        }
+        assertEquals(REIMBURSEMENTS * 100, reimbursementService.getTotalPendingAmount("stressed"));
+
+        ConcurrentHashMap<Integer, String> winners = new ConcurrentHashMap<>();
+        AtomicInteger wins = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int id : ids) {
+            for (int a = 0; a < ADMINS_PER_REIMBURSEMENT; a++) {
+                String status = a % 2 == 0 ? "approved" : "denied";
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        Reimbursement r = reimbursementService.resolveReimbursement(id, status, "pending", 1);
+                        wins.incrementAndGet();
+                        //if two admins both "won" the same claim, putIfAbsent catches it
+                        assertEquals(null, winners.putIfAbsent(id, r.getStatus()));
+                    } catch (StatusConflictException e) {
+                        conflicts.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+        }
+
+        start.countDown();
+        for (Future<?> f : futures) {
+            f.get(60, TimeUnit.SECONDS); //rethrows anything unexpected
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(REIMBURSEMENTS, wins.get());
+        assertEquals(REIMBURSEMENTS * (ADMINS_PER_REIMBURSEMENT - 1), conflicts.get());
+
+        //the DB agrees with whoever won, and nothing is pending anymore
+        for (int id : ids) {
+            assertEquals(winners.get(id), rDAO.findByReimbursementId(id).getStatus());
+        }
+        assertEquals(0, reimbursementService.getTotalPendingAmount("stressed"));
+    }
+}
@@ -0,0 +1,123 @@
+package com.revature.P1;
+
+import com.revature.daos.ReimbursementDAO;
+import com.revature.daos.UserDAO;
+import com.revature.services.ReimbursementService;
+import com.revature.services.TokenService;
+import com.revature.services.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//The DTOs we send back: no passwords, ?fields= picks fields, ?shape=normalized lists each user once
+@SpringBootTest
+@AutoConfigureMockMvc
+class ResponseShapeTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ReimbursementService reimbursementService;
+
+    @Autowired
+    private UserDAO uDAO;
+
+    @Autowired
+    private ReimbursementDAO rDAO;
+
+    @Autowired
+    private TokenService tokenService;
+
+    private String adminToken;
+
+    @BeforeEach
+    void seed() {
+        userService.registerUser("Shape", "Admin", "shapeadmin", "password", "admin");
+        for (int i = 0; i < 3; i++) {
+            reimbursementService.addReimbursement("claim " + i, 10 + i, "shapeadmin");
+        }
+        adminToken = tokenService.issue(1, "shapeadmin", "admin");
+    }
+
+    //through the service, so the UserCache/UsernameIndex forget the username too
+    @AfterEach
+    void cleanUp() {
+        rDAO.deleteAll();
+        uDAO.findAll().forEach(u -> userService.deleteUser(u.getUserId()));
+    }
+
+    @Test
+    void userListHasNoPasswordsAndHonorsFields() throws Exception {
+        perform("/users")
+                .andExpect(jsonPath("$[0].username").value("shapeadmin"))
+                .andExpect(jsonPath("$[0].firstName").value("Shape"))
+                .andExpect(jsonPath("$[0].password").doesNotExist());
+
+        perform("/users?fields=userId,username")
+                .andExpect(jsonPath("$[0].username").value("shapeadmin"))
+                .andExpect(jsonPath("$[0].userId").exists())
+                .andExpect(jsonPath("$[0].firstName").doesNotExist())
+                .andExpect(jsonPath("$[0].role").doesNotExist());
+    }
+
+    @Test
+    void unknownFieldIsABadRequest() throws Exception {
+        mockMvc.perform(get("/users?fields=password").header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/reimbursements/user/false/shapeadmin?shape=flat"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void nestedReimbursementsCarryAUserWithoutPassword() throws Exception {
+        perform("/reimbursements/user/false/shapeadmin")
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].user.username").value("shapeadmin"))
+                .andExpect(jsonPath("$[0].user.password").doesNotExist())
+                .andExpect(jsonPath("$[0].userId").doesNotExist());
+    }
+
+    @Test
+    void normalizedShapeListsEachUserOnce() throws Exception {
+        perform("/reimbursements/all/false?shape=normalized&size=2")
+                .andExpect(jsonPath("$.reimbursements", hasSize(2)))
+                .andExpect(jsonPath("$.reimbursements[0].user").doesNotExist())
+                .andExpect(jsonPath("$.reimbursements[0].userId").exists())
+                .andExpect(jsonPath("$.users", hasSize(1)))
+                .andExpect(jsonPath("$.users[0].username").value("shapeadmin"))
+                .andExpect(jsonPath("$.next").exists());
+    }
+
+    @Test
+    void sparseFieldsApplyToEachReimbursement() throws Exception {
+        perform("/reimbursements/user/true/shapeadmin?fields=reimbursementId,amount")
+                .andExpect(jsonPath("$[0].amount").exists())
+                .andExpect(jsonPath("$[0].reimbursementId").exists())
+                .andExpect(jsonPath("$[0].description").doesNotExist())
+                .andExpect(jsonPath("$[0].user").doesNotExist());
+
+        perform("/reimbursements/all/true?shape=normalized&fields=amount")
+                .andExpect(jsonPath("$.reimbursements[0].amount").exists())
+                .andExpect(jsonPath("$.reimbursements[0].userId").doesNotExist())
+                .andExpect(jsonPath("$.users[0].username").value("shapeadmin"));
+    }
+
+    private ResultActions perform(String url) throws Exception {
+        return mockMvc.perform(get(url).header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,104 @@
+package com.revature.P1;
+
+import com.revature.config.SlowQueryLog;
+import com.revature.daos.UserDAO;
+import com.revature.models.User;
+import com.revature.services.TokenService;
+import com.revature.services.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//With the threshold at 0 EVERY statement is "slow", so we can check what the log captures
+@SpringBootTest(properties = {"profiler.slow-query.threshold-ms=0", "profiler.slow-query.explain=true"})
+@AutoConfigureMockMvc
+class SlowQueryLogTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SlowQueryLog slowQueryLog;
+
+    @Autowired
+    private UserDAO uDAO;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @BeforeEach
+    void seed() {
+        uDAO.save(new User(0, "Slow", "Query", "slowpoke", "secret-password", "admin"));
+        slowQueryLog.clear();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        uDAO.deleteAll();
+    }
+
+    @Test
+    void capturesNormalizedSqlParameterTypesCallerAndPlan() throws Exception {
+        userService.getUserByUsername("slowpoke");
+
+        SlowQueryLog.SlowQuery q = awaitQuery("username");
+        assertTrue(q.sql().contains("?"));
+        assertEquals(List.of("String"), q.parameterTypes());
+        assertEquals("UserService.getUserByUsername", q.caller());
+        assertNotNull(q.plan());
+        assertFalse(q.plan().startsWith("EXPLAIN failed"), q.plan());
+        //the bound value itself is never kept
+        assertFalse(q.toString().contains("slowpoke"));
+    }
+
+    @Test
+    void normalizesLiteralsAndInLists() {
+        assertEquals("select * from t where id in (?, ...) and amount > ? and name = ?",
+                SlowQueryLog.normalize("select *  from t\n where id in (?, ?,?) and amount > 50 and name = 'bob'"));
+        assertEquals("select r1_0.id from t r1_0", SlowQueryLog.normalize("select r1_0.id from t r1_0"));
+    }
+
+    @Test
+    void adminsCanReadTheLog() throws Exception {
+        userService.getUserByUsername("slowpoke");
+        awaitQuery("username");
+
+        mockMvc.perform(get("/profiler/slow-queries").header("Authorization", "Bearer " + tokenService.issue(1, "slowpoke", "admin")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].caller", hasItem("UserService.getUserByUsername")));
+
+        mockMvc.perform(get("/profiler/slow-queries").header("Authorization", "Bearer " + tokenService.issue(2, "someone", "employee")))
+                .andExpect(status().isForbidden());
+    }
+
+    //EXPLAIN runs in the background, so the entry can show up a moment later
+    private SlowQueryLog.SlowQuery awaitQuery(String sqlFragment) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            for (SlowQueryLog.SlowQuery q : slowQueryLog.recent(500)) {
+                if (q.sql().contains(sqlFragment) && q.sql().startsWith("select")) {
+                    return q;
+                }
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("No slow query captured for: " + sqlFragment);
+    }
+}
@@ -0,0 +1,184 @@
+package com.revature.P1;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*BENCHMARK - time-to-first-request for a fresh JVM, default settings vs the "fast" profile (with and without AppCDS)
+
+ Each run launches the app in a NEW JVM (startup time can't be measured in one that's already warm),
+ and times from launch until GET /actuator/health answers 200. All modes use the in-memory test DB,
+ and all of them create its tables (so the only difference is the startup settings).
+ Results go to target/benchmarks/startup.json
+
+ AppCDS only works on jars, so target/classes and target/test-classes get jarred up first
+
+ Run with: mvn test -Pbenchmark -Dtest=StartupBenchmarkTests -Dbench.startupRuns=5 */
+@Tag("benchmark")
+class StartupBenchmarkTests {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(120);
+
+    private final int runs = Integer.getInteger("bench.startupRuns", 5);
+    private final Path work = Path.of("target", "benchmarks", "startup");
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+
+    private record ModeResult(String mode, List<Long> millis) {
+        long median() {
+            List<Long> sorted = millis.stream().sorted().toList();
+            return sorted.get(sorted.size() / 2);
+        }
+
+        String toJson() {
+            return "{\"mode\":\"" + mode + "\",\"medianMs\":" + median() + ",\"runsMs\":" + millis + "}";
+        }
+    }
+
+    @Test
+    void timeToFirstRequest() throws Exception {
+        Files.createDirectories(work);
+        String classpath = jarredClasspath();
+        Path archive = work.resolve("app.jsa");
+        Files.deleteIfExists(archive);
+
+        List<String> fast = List.of("--spring.profiles.active=fast",
+                //the fast profile assumes Postgres + an already migrated schema - point it at H2 like the other modes
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create-drop");
+
+        ModeResult baseline = measure("default", classpath, List.of(), List.of());
+        ModeResult lazy = measure("fast", classpath, List.of(), fast);
+
+        //AppCDS training run: start the app, dump the loaded classes into the archive, exit
+        Process training = launch("cds-training", classpath,
+                List.of("-XX:ArchiveClassesAtExit=" + archive, "-Dspring.context.exit=onRefresh"), fast, freePort());
+        if (!training.waitFor(STARTUP_TIMEOUT.toSeconds(), TimeUnit.SECONDS)) {
+            training.destroyForcibly();
+        }
+        ModeResult cds = Files.exists(archive)
+                ? measure("fast+appcds", classpath, List.of("-XX:SharedArchiveFile=" + archive), fast)
+                : null;
+
+        List<ModeResult> results = cds == null ? List.of(baseline, lazy) : List.of(baseline, lazy, cds);
+        for (ModeResult r : results) {
+            System.out.printf("%-12s median %5d ms  runs %s%n", r.mode(), r.median(), r.millis());
+        }
+        Files.writeString(Path.of("target", "benchmarks", "startup.json"),
+                "{\"runs\":" + runs + ",\"modes\":[" + results.stream().map(ModeResult::toJson).collect(Collectors.joining(",")) + "]}");
+
+        assertTrue(results.stream().allMatch(r -> r.median() > 0));
+    }
+
+    private ModeResult measure(String mode, String classpath, List<String> jvmArgs, List<String> appArgs) throws Exception {
+        List<Long> millis = new ArrayList<>();
+        for (int i = 0; i < runs; i++) {
+            int port = freePort();
+            long start = System.nanoTime();
+            Process app = launch(mode + "-" + i, classpath, jvmArgs, appArgs, port);
+            try {
+                awaitFirstRequest(app, port);
+                millis.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } finally {
+                app.destroy();
+                if (!app.waitFor(30, TimeUnit.SECONDS)) {
+                    app.destroyForcibly();
+                }
+            }
+        }
+        return new ModeResult(mode, millis);
+    }
+
+    private Process launch(String name, String classpath, List<String> jvmArgs, List<String> appArgs, int port) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.addAll(List.of("-cp", classpath, P1Application.class.getName(),
+                "--server.port=" + port, "--logging.level.root=WARN"));
+        command.addAll(appArgs);
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(work.resolve(name + ".log").toFile())
+                .start();
+    }
+
+    private void awaitFirstRequest(Process app, int port) throws Exception {
+        HttpRequest health = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health")).GET().build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!app.isAlive()) {
+                throw new IllegalStateException("App exited during startup, check the logs in " + work);
+            }
+            try {
+                if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                //not listening yet
+            }
+            Thread.sleep(10);
+        }
+        throw new IllegalStateException("App didn't answer within " + STARTUP_TIMEOUT);
+    }
+
+    //the test classpath, with our two class directories swapped for jars (AppCDS skips classes loaded from directories)
+    private String jarredClasspath() throws IOException {
+        String surefire = System.getProperty("surefire.test.class.path");
+        String[] entries = (surefire != null ? surefire : System.getProperty("java.class.path")).split(File.pathSeparator);
+        List<String> out = new ArrayList<>();
+        for (String entry : entries) {
+            Path p = Path.of(entry);
+            if (Files.isDirectory(p)) {
+                Path jar = work.resolve(p.getFileName() + ".jar");
+                jar(p, jar);
+                out.add(jar.toAbsolutePath().toString());
+            } else {
+                out.add(entry);
+            }
+        }
+        return String.join(File.pathSeparator, out);
+    }
+
+    private static void jar(Path dir, Path jar) throws IOException {
+        try (OutputStream file = Files.newOutputStream(jar);
+             JarOutputStream out = new JarOutputStream(file);
+             Stream<Path> files = Files.walk(dir)) {
+            for (Path f : files.filter(f -> !f.equals(dir)).toList()) {
+                String name = dir.relativize(f).toString().replace(File.separatorChar, '/');
+                //directory entries too - Spring's component scan looks packages up by their directory
+                if (Files.isDirectory(f)) {
+                    out.putNextEntry(new JarEntry(name + "/"));
+                } else {
+                    out.putNextEntry(new JarEntry(name));
+                    Files.copy(f, out);
+                }
+                out.closeEntry();
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
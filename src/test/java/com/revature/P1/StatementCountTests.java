@@ -0,0 +1,108 @@
+package com.revature.P1;
+
+import com.revature.daos.ReimbursementDAO;
+import com.revature.daos.UserDAO;
+import com.revature.models.Reimbursement;
+import com.revature.models.User;
+import com.revature.services.TokenService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//Makes sure our read endpoints run a FIXED number of SQL statements, no matter how many rows there are
+//If someone brings back an EAGER fetch (or the N+1 problem), these will fail
+@SpringBootTest
+@AutoConfigureMockMvc
+class StatementCountTests {
+
+    private static final int USERS = 10;
+    private static final int REIMBURSEMENTS_PER_USER = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserDAO uDAO;
+
+    @Autowired
+    private ReimbursementDAO rDAO;
+
+    @Autowired
+    private EntityManagerFactory emf;
+
+    @Autowired
+    private TokenService tokenService;
+
+    private Statistics stats;
+    private String adminToken;
+
+    @BeforeEach
+    void seed() {
+        for (int i = 0; i < USERS; i++) {
+            User u = uDAO.save(new User(0, "First" + i, "Last" + i, "counter" + i, "password", "admin"));
+            for (int j = 0; j < REIMBURSEMENTS_PER_USER; j++) {
+                Reimbursement r = new Reimbursement("trip " + j, 10 + j, u);
+                if (j % 2 == 0) {
+                    r.setStatus("approved");
+                }
+                rDAO.save(r);
+            }
+        }
+
+        //log in as an admin (the AuthInterceptor checks this token)
+        adminToken = tokenService.issue(1, "counter0", "admin");
+
+        stats = emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        rDAO.deleteAll();
+        uDAO.deleteAll();
+    }
+
+    //(the list endpoints also read their ETag's version first - one small statement, check ChangeVersions)
+    @Test
+    void getAllUsersRunsTwoStatements() throws Exception {
+        assertStatements("/users", 2);
+    }
+
+    @Test
+    void usernameSearchRunsNoStatements() throws Exception {
+        //served from the in-memory UsernameIndex
+        assertStatements("/users/search/:counter", 0);
+        assertStatements("/users/search/:", 0);
+    }
+
+    @Test
+    void adminReimbursementListingRunsTwoStatements() throws Exception {
+        assertStatements("/reimbursements/all/false", 2);
+        assertStatements("/reimbursements/all/true", 2);
+    }
+
+    @Test
+    void userReimbursementListingRunsThreeStatements() throws Exception {
+        //one to find the user, the ETag's version, one for their reimbursements (with the user fetched in the same select)
+        assertStatements("/reimbursements/user/false/counter3", 3);
+        assertStatements("/reimbursements/user/true/counter3", 3);
+    }
+
+    //helper that hits an endpoint and checks how many statements Hibernate prepared
+    private void assertStatements(String url, long max) throws Exception {
+        stats.clear();
+        mockMvc.perform(get(url).header("Authorization", "Bearer " + adminToken)).andExpect(status().isOk());
+        long count = stats.getPrepareStatementCount();
+        assertTrue(count <= max, url + " ran " + count + " statements, expected at most " + max);
+    }
+}
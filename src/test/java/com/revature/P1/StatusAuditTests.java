@@ -0,0 +1,150 @@
+package com.revature.P1;
+
+import com.revature.daos.ReimbursementDAO;
+import com.revature.daos.UserDAO;
+import com.revature.models.Reimbursement;
+import com.revature.services.AuditLog;
+import com.revature.services.ReimbursementService;
+import com.revature.services.TokenService;
+import com.revature.services.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//The memory-mapped AuditLog on its own (with a fake clock), and the status history behind GET /reimbursements/audit
+@SpringBootTest(properties = "ratelimit.enabled=false")
+@AutoConfigureMockMvc
+class StatusAuditTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ReimbursementService reimbursementService;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private UserDAO uDAO;
+
+    @Autowired
+    private ReimbursementDAO rDAO;
+
+    @AfterEach
+    void cleanUp() {
+        rDAO.deleteAll();
+        uDAO.findAll().forEach(u -> userService.deleteUser(u.getUserId()));
+    }
+
+    @Test
+    void scansByReimbursementAndTimeRange(@TempDir Path dir) {
+        AtomicLong clock = new AtomicLong(1_000);
+        try (AuditLog log = new AuditLog(dir, 1 << 16, 4, clock::get)) {
+            for (int i = 0; i < 100; i++) {
+                log.append(i % 10, "pending", "approved", 7);
+                clock.addAndGet(10);
+            }
+            List<AuditLog.Entry> three = log.byReimbursement(3, 100);
+            assertEquals(10, three.size());
+            assertEquals(new AuditLog.Entry(1_030, 3, "pending", "approved", 7), three.getFirst());
+
+            //from is inclusive, to isn't
+            List<AuditLog.Entry> range = log.between(1_200, 1_300, 100);
+            assertEquals(10, range.size());
+            assertEquals(1_200, range.getFirst().timestamp());
+            assertEquals(3, log.between(0, Long.MAX_VALUE, 3).size());
+        }
+    }
+
+    @Test
+    void rollsOverKeepsOnlyTheNewestSegmentsAndReopens(@TempDir Path dir) {
+        AtomicLong clock = new AtomicLong(1_000);
+        //10 records a segment, 3 segments kept
+        try (AuditLog log = new AuditLog(dir, 10 * AuditLog.RECORD, 3, clock::get)) {
+            log.appendAll(IntStream.range(0, 45).boxed().toList(), "pending", "denied", 1);
+            assertEquals(3, log.segmentCount());
+            assertEquals(25, log.size()); //segments 3, 4 (full) and 5 (half) - the first 20 are gone
+            assertEquals(List.of(), log.byReimbursement(19, 10));
+            assertEquals(1, log.byReimbursement(20, 10).size());
+        }
+        //after a restart the records are found again, and new ones go after them
+        try (AuditLog log = new AuditLog(dir, 10 * AuditLog.RECORD, 3, clock::get)) {
+            assertEquals(25, log.size());
+            log.append(99, "denied", "pending", 2);
+            assertEquals(26, log.size());
+            assertEquals(new AuditLog.Entry(1_000, 99, "denied", "pending", 2), log.byReimbursement(99, 10).getFirst());
+        }
+    }
+
+    @Test
+    void resolvesAreRecordedWithTheAdminWhoDidThem() throws Exception {
+        //other test classes share this context (and its audit log), so only look at what this test did
+        Instant start = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        userService.registerUser("Audit", "Admin", "auditadmin", "password", "admin");
+        Reimbursement a = reimbursementService.addReimbursement("hotel", 100, "auditadmin");
+        Reimbursement b = reimbursementService.addReimbursement("taxi", 30, "auditadmin");
+        Reimbursement c = reimbursementService.addReimbursement("dinner", 40, "auditadmin");
+        String admin = "Bearer " + tokenService.issue(77, "auditadmin", "admin");
+
+        mockMvc.perform(put("/reimbursements").header("Authorization", admin)
+                        .param("reimbursementid", Integer.toString(a.getReimbursementId())).param("status", "denied"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/reimbursements").header("Authorization", admin)
+                        .param("reimbursementid", Integer.toString(a.getReimbursementId()))
+                        .param("status", "approved").param("expected", "denied"))
+                .andExpect(status().isOk());
+        //(bulk resolves are in BulkResolvePostgresTests)
+        for (Reimbursement r : List.of(b, c)) {
+            mockMvc.perform(put("/reimbursements").header("Authorization", admin)
+                            .param("reimbursementid", Integer.toString(r.getReimbursementId())).param("status", "approved"))
+                    .andExpect(status().isOk());
+        }
+        //a lost race changes nothing, so it isn't in the history either
+        mockMvc.perform(put("/reimbursements").header("Authorization", admin)
+                        .param("reimbursementid", Integer.toString(b.getReimbursementId())).param("status", "denied"))
+                .andExpect(status().isConflict());
+
+        mockMvc.perform(get("/reimbursements/audit").header("Authorization", admin)
+                        .param("reimbursementid", Integer.toString(a.getReimbursementId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].oldStatus").value("pending"))
+                .andExpect(jsonPath("$[0].newStatus").value("denied"))
+                .andExpect(jsonPath("$[1].newStatus").value("approved"))
+                .andExpect(jsonPath("$[1].adminUserId").value(77));
+        mockMvc.perform(get("/reimbursements/audit").header("Authorization", admin)
+                        .param("reimbursementid", Integer.toString(b.getReimbursementId())))
+                .andExpect(jsonPath("$.length()").value(1));
+        mockMvc.perform(get("/reimbursements/audit").header("Authorization", admin).param("from", start.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(4));
+
+        //employees can't read it, and it needs a reimbursement or a time range
+        String employee = "Bearer " + tokenService.issue(78, "someone", "employee");
+        mockMvc.perform(get("/reimbursements/audit").header("Authorization", employee).param("reimbursementid", "1"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/reimbursements/audit").header("Authorization", admin))
+                .andExpect(status().isBadRequest());
+    }
+}
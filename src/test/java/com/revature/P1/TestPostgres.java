@@ -0,0 +1,56 @@
+package com.revature.P1;
+
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/*A real Postgres for the tests of our Postgres-only SQL (UPDATE ... RETURNING, full-text search...)
+ The rest of the suite runs on H2, which can't run that SQL at all.
+
+ Uses the DB at -Dtest.postgres.url (+ -Dtest.postgres.username / -Dtest.postgres.password) if it's set,
+ otherwise starts one in Docker with Testcontainers (once, shared by every test class).
+ With neither, the test classes that need it are skipped - put this on them:
+    @EnabledIf("com.revature.P1.TestPostgres#available")
+ and call TestPostgres.properties() from their @DynamicPropertySource.
+
+ The schema comes from the Flyway migrations (like in prod), so these also check that the migrations run
+ and match the entities (ddl-auto=validate). The tests clean up their own rows, the schema stays */
+final class TestPostgres {
+
+    private static final String URL = System.getProperty("test.postgres.url");
+
+    private static PostgreSQLContainer<?> container;
+
+    private TestPostgres() {
+    }
+
+    static boolean available() {
+        return URL != null || DockerClientFactory.instance().isDockerAvailable();
+    }
+
+    static void properties(DynamicPropertyRegistry registry) {
+        if (URL != null) {
+            registry.add("spring.datasource.url", () -> URL);
+            registry.add("spring.datasource.username", () -> System.getProperty("test.postgres.username", "postgres"));
+            registry.add("spring.datasource.password", () -> System.getProperty("test.postgres.password", "postgres"));
+        } else {
+            PostgreSQLContainer<?> pg = start();
+            registry.add("spring.datasource.url", pg::getJdbcUrl);
+            registry.add("spring.datasource.username", pg::getUsername);
+            registry.add("spring.datasource.password", pg::getPassword);
+        }
+        registry.add("spring.flyway.enabled", () -> "true");
+        registry.add("spring.flyway.schemas", () -> "project1");
+        registry.add("spring.flyway.default-schema", () -> "project1");
+        registry.add("spring.flyway.postgresql.transactional-lock", () -> "false");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+    }
+
+    private static synchronized PostgreSQLContainer<?> start() {
+        if (container == null) {
+            container = new PostgreSQLContainer<>("postgres:16-alpine");
+            container.start(); //stopped by Testcontainers when the test JVM exits
+        }
+        return container;
+    }
+}
@@ -0,0 +1,103 @@
+package com.revature.P1;
+
+import com.revature.services.ReimbursementService;
+import com.revature.services.UserService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*BENCHMARK - the same reimbursement traffic against platform threads vs virtual threads
+
+ Starts the app twice (once per mode, each with its own in-memory DB), drives the same mix at it,
+ and reports throughput + p99 latency for each. Results also get written to target/benchmarks/thread-model.json
+
+ Run with: mvn test -Pbenchmark -Dbench.concurrency=400 -Dbench.seconds=30 */
+@Tag("benchmark")
+class ThreadModelBenchmarkTests {
+
+    private static final int USERS = 50;
+    private static final int REIMBURSEMENTS_PER_USER = 40;
+
+    private final int concurrency = Integer.getInteger("bench.concurrency", 400);
+    private final int seconds = Integer.getInteger("bench.seconds", 15);
+
+    @Test
+    void platformVsVirtualThreads() throws Exception {
+        LoadDriver.Result platform = runMode("platform-threads", false);
+        LoadDriver.Result virtual = runMode("virtual-threads", true);
+
+        System.out.println(platform.toTable());
+        System.out.println(virtual.toTable());
+        System.out.printf("platform: %.0f req/s, p99 %.2f ms | virtual: %.0f req/s, p99 %.2f ms%n",
+                platform.throughput(), platform.overallPercentileMillis(0.99),
+                virtual.throughput(), virtual.overallPercentileMillis(0.99));
+
+        Path out = Path.of("target", "benchmarks", "thread-model.json");
+        Files.createDirectories(out.getParent());
+        Files.writeString(out, "{\"concurrency\":" + concurrency + ",\"runs\":[" + platform.toJson() + "," + virtual.toJson() + "]}");
+
+        assertTrue(platform.totalRequests() > 0 && virtual.totalRequests() > 0);
+    }
+
+    private LoadDriver.Result runMode(String label, boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext ctx = new SpringApplicationBuilder(P1Application.class).properties(
+                "server.port=0",
+                "spring.datasource.url=jdbc:h2:mem:" + label + ";DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS project1",
+                "spring.threads.virtual.enabled=" + virtualThreads,
+                "datasource.gate.enabled=" + virtualThreads,
+                "spring.datasource.hikari.maximum-pool-size=20",
+                "server.tomcat.max-connections=10000",
+                "limits.enabled=false", "ratelimit.enabled=false", //measure the app itself, not the limits in front of it
+                "logging.level.root=WARN").run()) {
+
+            seed(ctx);
+            String base = "http://localhost:" + ctx.getEnvironment().getProperty("local.server.port");
+            return new LoadDriver().run(label, mix(base), concurrency, Duration.ofSeconds(3), Duration.ofSeconds(seconds));
+        }
+    }
+
+    private static void seed(ConfigurableApplicationContext ctx) {
+        UserService users = ctx.getBean(UserService.class);
+        ReimbursementService reimbursements = ctx.getBean(ReimbursementService.class);
+        for (int u = 0; u < USERS; u++) {
+            users.registerUser("Bench", "User", "bench" + u, "password", "employee");
+            for (int r = 0; r < REIMBURSEMENTS_PER_USER; r++) {
+                reimbursements.addReimbursement("seeded claim " + r, 25 + r, "bench" + u);
+            }
+        }
+    }
+
+    //the reimbursement endpoints, weighted roughly like real traffic (mostly reads)
+    static List<LoadDriver.Endpoint> mix(String base) {
+        return List.of(
+                new LoadDriver.Endpoint("GET user reimbursements", 40,
+                        () -> get(base + "/reimbursements/user/false/" + randomUser())),
+                new LoadDriver.Endpoint("GET user pending", 30,
+                        () -> get(base + "/reimbursements/user/true/" + randomUser())),
+                new LoadDriver.Endpoint("GET pending amount", 20,
+                        () -> get(base + "/reimbursements/amount/" + randomUser())),
+                new LoadDriver.Endpoint("POST reimbursement", 10,
+                        () -> HttpRequest.newBuilder(URI.create(base + "/reimbursements?description=bench&amount=42&username=" + randomUser()))
+                                .POST(HttpRequest.BodyPublishers.noBody()).build())
+        );
+    }
+
+    static String randomUser() {
+        return "bench" + ThreadLocalRandom.current().nextInt(USERS);
+    }
+
+    static HttpRequest get(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).GET().build();
+    }
+}
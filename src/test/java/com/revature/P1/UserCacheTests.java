@@ -0,0 +1,111 @@
+package com.revature.P1;
+
+import com.revature.daos.ReimbursementDAO;
+import com.revature.daos.UserDAO;
+import com.revature.models.User;
+import com.revature.services.UserCache;
+import com.revature.services.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+//The username -> user cache: misses go to the DB once, hits don't, and deleted users are forgotten
+@SpringBootTest
+class UserCacheTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private UserDAO uDAO;
+
+    @Autowired
+    private ReimbursementDAO rDAO;
+
+    @Autowired
+    private EntityManagerFactory emf;
+
+    @Autowired
+    private PlatformTransactionManager txManager;
+
+    @AfterEach
+    void cleanUp() {
+        rDAO.deleteAll();
+        uDAO.findAll().forEach(u -> userService.deleteUser(u.getUserId()));
+    }
+
+    @Test
+    void missLoadsOnceThenHitsSkipTheDb() {
+        //straight into the DB, so the shared cache hasn't seen this user yet
+        User saved = uDAO.save(new User(0, "Cache", "Miss", "cachemiss", "password", "employee"));
+        UserCache cache = new UserCache(uDAO, 100, 60);
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+
+        stats.clear();
+        assertEquals(saved.getUserId(), cache.getUserId("cachemiss"));
+        assertEquals(1, stats.getPrepareStatementCount());
+        stats.clear();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(saved.getUserId(), cache.getUserId("cachemiss"));
+        }
+        assertEquals(0, stats.getPrepareStatementCount());
+        assertEquals(10L, cache.stats().get("hits"));
+        assertEquals(1L, cache.stats().get("misses"));
+
+        //unknown usernames aren't cached - every lookup asks the DB again (so a later registration is found)
+        assertThrows(IllegalArgumentException.class, () -> cache.get("nobody"));
+        assertThrows(IllegalArgumentException.class, () -> cache.get("nobody"));
+        assertEquals(1L, cache.stats().get("size"));
+    }
+
+    @Test
+    void rolledBackRegistrationIsNotCached() {
+        new TransactionTemplate(txManager).executeWithoutResult(status -> {
+            userService.registerUser("Rolled", "Back", "cacherollback", "password", "employee");
+            status.setRollbackOnly();
+        });
+        assertNull(userCache.getCache().getIfPresent("cacherollback"));
+        assertThrows(IllegalArgumentException.class, () -> userCache.getUser("cacherollback"));
+    }
+
+    @Test
+    void toUserCarriesTheIdButNoPassword() {
+        User registered = userService.registerUser("Cache", "Id", "cacheid", "password", "admin");
+        User u = userCache.getUser("cacheid");
+        assertEquals(registered.getUserId(), u.getUserId());
+        assertEquals("Cache", u.getFirstName());
+        assertEquals("admin", u.getRole());
+        assertNull(u.getPassword());
+    }
+
+    @Test
+    void deleteUserEvictsAndInvalidateForcesAReload() {
+        User registered = userService.registerUser("Cache", "Gone", "cachegone", "password", "employee");
+        assertEquals(registered.getUserId(), userCache.getUserId("cachegone"));
+
+        userService.deleteUser(registered.getUserId());
+        assertThrows(IllegalArgumentException.class, () -> userCache.get("cachegone"));
+
+        //invalidate() on its own: the next lookup goes back to the DB
+        User other = uDAO.save(new User(0, "Cache", "Again", "cacheagain", "password", "employee"));
+        userCache.getUserId("cacheagain");
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        userCache.invalidate("cacheagain");
+        stats.clear();
+        assertEquals(other.getUserId(), userCache.getUserId("cacheagain"));
+        assertEquals(1, stats.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,114 @@
+package com.revature.P1;
+
+import com.revature.daos.ReimbursementDAO;
+import com.revature.daos.UserDAO;
+import com.revature.models.DTOs.OutgoingUserDTO;
+import com.revature.models.User;
+import com.revature.services.UserService;
+import com.revature.services.UsernameIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//The in-memory username search - prefix matching, the result cap, only committed changes, and keeping up with other instances
+@SpringBootTest
+class UsernameIndexTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UsernameIndex usernameIndex;
+
+    @Autowired
+    private UserDAO uDAO;
+
+    @Autowired
+    private ReimbursementDAO rDAO;
+
+    @Autowired
+    private PlatformTransactionManager txManager;
+
+    @AfterEach
+    void cleanUp() {
+        rDAO.deleteAll();
+        uDAO.findAll().forEach(u -> userService.deleteUser(u.getUserId()));
+    }
+
+    @Test
+    void findsUsernamesByPrefixInOrder() {
+        for (String name : List.of("idx_bob", "idx_alice", "idx_albert", "idxother", "zed")) {
+            userService.registerUser("First", "Last", name, "password", "employee");
+        }
+
+        assertEquals(List.of("idx_albert", "idx_alice"), usernames("idx_al", 10));
+        assertEquals(List.of("idx_albert", "idx_alice", "idx_bob"), usernames("idx_", 10));
+        assertEquals(List.of("idx_albert"), usernames("idx_", 1));
+        assertEquals(List.of(), usernames("idx_c", 10));
+        //prefixes are case-sensitive, like the usernames themselves
+        assertEquals(List.of(), usernames("IDX_", 10));
+
+        assertThrows(IllegalArgumentException.class, () -> userService.getUserByUsernameStartingWith("idx", 0));
+    }
+
+    @Test
+    void resultsAreCappedAndDeletedUsersDisappear() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < UserService.MAX_SEARCH_RESULTS + 10; i++) {
+            users.add(userService.registerUser("First", "Last", String.format("cap%04d", i), "password", "employee"));
+        }
+        assertEquals(UserService.MAX_SEARCH_RESULTS, usernames("cap", 100_000).size());
+
+        userService.deleteUser(users.getFirst().getUserId());
+        assertEquals("cap0001", usernames("cap", 1).getFirst());
+        assertEquals(List.of(), usernames("cap0000", 10));
+    }
+
+    @Test
+    void refreshPicksUpUsersAddedAndRemovedElsewhere() {
+        userService.registerUser("Local", "User", "refreshlocal", "password", "employee");
+        //straight into the DB, like a registration/delete on another instance would be
+        User remote = uDAO.save(new User(0, "Remote", "User", "refreshremote", "password", "employee"));
+        assertEquals(List.of("refreshlocal"), usernames("refresh", 10));
+
+        assertTrue(usernameIndex.refresh() >= 1);
+        assertEquals(List.of("refreshlocal", "refreshremote"), usernames("refresh", 10));
+
+        uDAO.deleteById(remote.getUserId());
+        usernameIndex.refresh();
+        assertEquals(List.of("refreshlocal"), usernames("refresh", 10));
+        assertEquals(0, usernameIndex.refresh());
+    }
+
+    @Test
+    void rolledBackRegistrationsAndDeletesDontChangeTheIndex() {
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+        tx.executeWithoutResult(status -> {
+            userService.registerUser("Rolled", "Back", "rolledback", "password", "employee");
+            assertEquals(List.of(), usernames("rolledback", 10)); //not until it commits
+            status.setRollbackOnly();
+        });
+        assertEquals(List.of(), usernames("rolledback", 10));
+
+        User kept = userService.registerUser("Kept", "User", "keptuser", "password", "employee");
+        tx.executeWithoutResult(status -> {
+            userService.deleteUser(kept.getUserId());
+            status.setRollbackOnly();
+        });
+        assertEquals(List.of("keptuser"), usernames("keptuser", 10));
+    }
+
+    private List<String> usernames(String prefix, int limit) {
+        return userService.getUserByUsernameStartingWith(prefix, limit).stream().map(OutgoingUserDTO::getUsername).toList();
+    }
+}
@@ -0,0 +1,323 @@
+package com.revature.P1;
+
+import com.revature.config.ReadRouting;
+import com.revature.daos.IngestRejectionDAO;
+import com.revature.daos.ReimbursementDAO;
+import com.revature.daos.UserDAO;
+import com.revature.models.IngestRejection;
+import com.revature.models.Reimbursement;
+import com.revature.models.User;
+import com.revature.services.ChangeVersions;
+import com.revature.services.PendingTotals;
+import com.revature.services.ReimbursementIngestion;
+import com.revature.services.ReimbursementService;
+import com.revature.services.SegmentedLog;
+import com.revature.services.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//The segmented log on its own, and POST /reimbursements with write-behind turned on
+@SpringBootTest(properties = {"reimbursements.ingest.async=true", "reimbursements.ingest.node-id=3", "ratelimit.enabled=false"})
+@AutoConfigureMockMvc
+class WriteBehindTests {
+
+    @TempDir
+    static Path ingestDir;
+
+    @DynamicPropertySource
+    static void ingestDir(DynamicPropertyRegistry registry) {
+        registry.add("reimbursements.ingest.dir", () -> ingestDir.toString());
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ReimbursementService reimbursementService;
+
+    @Autowired
+    private UserDAO uDAO;
+
+    @Autowired
+    private ReimbursementDAO rDAO;
+
+    @Autowired
+    private IngestRejectionDAO rejectionDAO;
+
+    @Autowired
+    private PendingTotals pendingTotals;
+
+    @Autowired
+    private ChangeVersions changeVersions;
+
+    @Autowired
+    private ReadRouting readRouting;
+
+    @Autowired
+    private PlatformTransactionManager txManager;
+
+    @AfterEach
+    void cleanUp() {
+        rejectionDAO.deleteAll();
+        rDAO.deleteAll();
+        uDAO.findAll().forEach(u -> userService.deleteUser(u.getUserId()));
+    }
+
+    @Test
+    void submissionsAreAcceptedThenWrittenInTheBackground() throws Exception {
+        userService.registerUser("Write", "Behind", "writebehind", "password", "employee");
+        for (int i = 0; i < 20; i++) {
+            mockMvc.perform(post("/reimbursements").param("description", "claim " + i).param("amount", "5")
+                            .param("username", "writebehind"))
+                    .andExpect(status().isAccepted())
+                    .andExpect(jsonPath("$.status").value("accepted"));
+        }
+
+        List<Reimbursement> rows = awaitRows(20);
+        //node 3's ids are (3 << 48) | log seq
+        assertTrue(rows.stream().allMatch(r -> r.getIngestSeq() >>> 48 == 3));
+        assertEquals(100, reimbursementService.getTotalPendingAmount("writebehind"));
+
+        //bad claims are turned away up front - nobody would hear about them later
+        mockMvc.perform(post("/reimbursements").param("description", "x").param("amount", "0").param("username", "writebehind"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/reimbursements").param("description", "x").param("amount", "1").param("username", "nobody"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void replayAfterACrashSkipsTheClaimsThatAlreadyWentIn(@TempDir Path dir) throws Exception {
+        User user = userService.registerUser("Crash", "Replay", "crashreplay", "password", "employee");
+        long node = 5L << 48;
+
+        //10 claims accepted (on disk), none checkpointed...
+        try (SegmentedLog log = new SegmentedLog(dir, 1 << 20)) {
+            for (int i = 1; i <= 10; i++) {
+                byte[] text = ("claim " + i).getBytes(StandardCharsets.UTF_8);
+                log.append(ByteBuffer.allocate(8 + text.length).putInt(user.getUserId()).putInt(i).put(text).array());
+            }
+        }
+        //...but 2, 3 and 5 made it into the DB (and the totals) before the "crash"
+        new TransactionTemplate(txManager).executeWithoutResult(status -> {
+            for (int seq : List.of(2, 3, 5)) {
+                Reimbursement r = new Reimbursement("claim " + seq, seq, user);
+                r.setIngestSeq(node | seq);
+                rDAO.save(r);
+                pendingTotals.adjust(user.getUserId(), 1, seq);
+            }
+        });
+
+        //"restart" - batches of 3, so some batches are part done and some are all new
+        ReimbursementIngestion restarted = new ReimbursementIngestion(true, dir.toString(), 1 << 20, 3, 5,
+                rDAO, uDAO, rejectionDAO, pendingTotals, changeVersions, readRouting, txManager);
+        restarted.afterPropertiesSet();
+        try {
+            for (int i = 0; i < 100 && restarted.backlog() > 0; i++) {
+                Thread.sleep(50);
+            }
+            assertEquals(0, restarted.backlog());
+        } finally {
+            restarted.destroy();
+        }
+
+        List<Reimbursement> rows = rDAO.findAll();
+        assertEquals(10, rows.size());
+        assertEquals(LongStream.rangeClosed(1, 10).mapToObj(seq -> node | seq).collect(Collectors.toSet()),
+                rows.stream().map(Reimbursement::getIngestSeq).collect(Collectors.toSet()));
+        assertTrue(rows.stream().allMatch(r -> r.getAmount() == (r.getIngestSeq() & 0xFFFF)), "a claim landed on the wrong seq");
+        assertEquals(55, reimbursementService.getTotalPendingAmount("crashreplay"));
+        assertEquals(10, pendingTotals.get(user.getUserId()).count());
+    }
+
+    @Test
+    void claimsThatCantGoInAreDeadLetteredAndCanBeLookedUp(@TempDir Path dir) throws Exception {
+        User user = userService.registerUser("Dead", "Letter", "deadletter", "password", "employee");
+        long node = 6L << 48;
+
+        //claim 2's user is gone by the time it reaches the DB (the FK fails), 1 and 3 are fine
+        try (SegmentedLog log = new SegmentedLog(dir, 1 << 20)) {
+            for (int userId : new int[]{user.getUserId(), 999_999, user.getUserId()}) {
+                byte[] text = "claim".getBytes(StandardCharsets.UTF_8);
+                log.append(ByteBuffer.allocate(8 + text.length).putInt(userId).putInt(7).put(text).array());
+            }
+        }
+        ReimbursementIngestion ingestion = new ReimbursementIngestion(true, dir.toString(), 1 << 20, 10, 6,
+                rDAO, uDAO, rejectionDAO, pendingTotals, changeVersions, readRouting, txManager);
+        ingestion.afterPropertiesSet();
+        try {
+            for (int i = 0; i < 100 && ingestion.backlog() > 0; i++) {
+                Thread.sleep(50);
+            }
+            assertEquals(0, ingestion.backlog());
+            assertEquals(1, ingestion.rejectedCount());
+        } finally {
+            ingestion.destroy();
+        }
+
+        assertEquals(2, rDAO.findAll().size());
+        IngestRejection rejection = rejectionDAO.findById(node | 2).orElseThrow();
+        assertEquals(999_999, rejection.getUserId());
+        assertEquals(7, rejection.getAmount());
+
+        mockMvc.perform(get("/reimbursements/ingest/" + (node | 2)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("rejected"));
+        mockMvc.perform(get("/reimbursements/ingest/" + (node | 3)))
+                .andExpect(jsonPath("$.status").value("inserted"))
+                .andExpect(jsonPath("$.reimbursementId").value(rDAO.findIdByIngestSeq(node | 3)));
+        mockMvc.perform(get("/reimbursements/ingest/" + (node | 4)))
+                .andExpect(jsonPath("$.status").value("accepted"));
+
+        //a replay (nothing was checkpointed past the crash point, say) doesn't try it - or count it - again
+        Files.deleteIfExists(dir.resolve("checkpoint"));
+        ReimbursementIngestion replayed = new ReimbursementIngestion(true, dir.toString(), 1 << 20, 10, 6,
+                rDAO, uDAO, rejectionDAO, pendingTotals, changeVersions, readRouting, txManager);
+        replayed.afterPropertiesSet();
+        try {
+            for (int i = 0; i < 100 && replayed.backlog() > 0; i++) {
+                Thread.sleep(50);
+            }
+            assertEquals(0, replayed.backlog());
+            assertEquals(0, replayed.rejectedCount());
+        } finally {
+            replayed.destroy();
+        }
+        assertEquals(2, rDAO.findAll().size());
+    }
+
+    @Test
+    void logResumesAfterItsCheckpoint(@TempDir Path dir) {
+        try (SegmentedLog log = new SegmentedLog(dir, 1 << 20)) {
+            for (int i = 1; i <= 5; i++) {
+                assertEquals(i, log.append(bytes("r" + i)));
+            }
+            assertEquals(3, log.poll(3).size());
+            log.checkpoint(3);
+        }
+        //"restart" - only what's after the checkpoint comes back, and new seqs carry on
+        try (SegmentedLog log = new SegmentedLog(dir, 1 << 20)) {
+            List<SegmentedLog.Entry> entries = log.poll(10);
+            assertEquals(List.of(4L, 5L), entries.stream().map(SegmentedLog.Entry::seq).toList());
+            assertEquals("r4", new String(entries.getFirst().payload(), StandardCharsets.UTF_8));
+            assertEquals(6, log.append(bytes("r6")));
+        }
+    }
+
+    @Test
+    void tornRecordAtTheEndIsCutOff(@TempDir Path dir) throws Exception {
+        try (SegmentedLog log = new SegmentedLog(dir, 1 << 20)) {
+            log.append(bytes("whole"));
+            log.append(bytes("torn in half"));
+        }
+        Path segment = onlySegment(dir);
+        try (RandomAccessFile f = new RandomAccessFile(segment.toFile(), "rw")) {
+            f.setLength(f.length() - 4); //as if we crashed half way through writing it
+        }
+        try (SegmentedLog log = new SegmentedLog(dir, 1 << 20)) {
+            assertEquals(1, log.poll(10).size());
+            assertEquals(2, log.append(bytes("again")));
+        }
+    }
+
+    @Test
+    void segmentsRollOverAndCheckpointedOnesAreDeleted(@TempDir Path dir) {
+        try (SegmentedLog log = new SegmentedLog(dir, 100)) {
+            for (int i = 0; i < 20; i++) {
+                log.append(bytes("record number " + i)); //30 bytes each with the header, so 3 per segment
+            }
+            assertTrue(log.segmentCount() >= 6);
+            assertEquals(20, log.poll(100).size());
+            log.checkpoint(20);
+            assertEquals(1, log.segmentCount());
+            assertEquals(0, log.backlog());
+        }
+    }
+
+    @Test
+    void recordCutShortInAnOlderSegmentIsAnErrorNotASkip(@TempDir Path dir) throws Exception {
+        try (SegmentedLog log = new SegmentedLog(dir, 100)) {
+            for (int i = 0; i < 6; i++) {
+                log.append(bytes("record number " + i)); //3 per segment again
+            }
+        }
+        //only the newest segment gets checked on open, so nothing notices this until the reader gets there
+        try (RandomAccessFile f = new RandomAccessFile(dir.resolve(String.format("%020d.log", 1)).toFile(), "rw")) {
+            f.setLength(f.length() - 4);
+        }
+        try (SegmentedLog log = new SegmentedLog(dir, 100)) {
+            assertThrows(UncheckedIOException.class, () -> log.poll(100));
+        }
+    }
+
+    @Test
+    void corruptRecordInAnOlderSegmentIsCaughtByTheReader(@TempDir Path dir) throws Exception {
+        try (SegmentedLog log = new SegmentedLog(dir, 100)) {
+            for (int i = 0; i < 6; i++) {
+                log.append(bytes("record number " + i));
+            }
+        }
+        //one flipped bit in the middle of record 2's payload (16 bytes of header, then the text)
+        try (RandomAccessFile f = new RandomAccessFile(dir.resolve(String.format("%020d.log", 1)).toFile(), "rw")) {
+            long pos = 30 + 16 + 3;
+            f.seek(pos);
+            int b = f.read();
+            f.seek(pos);
+            f.write(b ^ 1);
+        }
+        try (SegmentedLog log = new SegmentedLog(dir, 100)) {
+            assertThrows(UncheckedIOException.class, () -> log.poll(100));
+        }
+    }
+
+    private List<Reimbursement> awaitRows(int count) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            List<Reimbursement> rows = rDAO.findAll();
+            if (rows.size() >= count) {
+                return rows;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("The background writer didn't insert " + count + " rows");
+    }
+
+    private static Path onlySegment(Path dir) throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
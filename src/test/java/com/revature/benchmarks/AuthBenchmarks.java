@@ -0,0 +1,98 @@
+package com.revature.benchmarks;
+
+import com.revature.aspects.AuthInterceptor;
+import com.revature.controllers.UserController;
+import com.revature.services.TokenService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*Per-request cost of the authorization check (AuthInterceptor.preHandle)
+
+ Before the interceptor, the same checks were AuthAspect advice around the controller proxies.
+ The old AuthAspectBenchmarks measured that advice at ~100ns (login check) and ~160ns (login + admin check)
+ over a direct service call. Compare loginRequired/adminOnly against verifyToken to see what the table lookup adds */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthBenchmarks {
+
+    private AuthInterceptor interceptor;
+    private TokenService tokenService;
+    private HandlerMethod publicMethod;
+    private HandlerMethod loginMethod;
+    private HandlerMethod adminMethod;
+    private MockHttpServletRequest adminRequest;
+    private MockHttpServletRequest userRequest;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setup(SeededApp app) {
+        interceptor = app.bean(AuthInterceptor.class);
+        UserController controller = app.bean(UserController.class);
+        publicMethod = handler(controller, "registerUser");
+        loginMethod = handler(controller, "getUserByUsernameStartingWith");
+        adminMethod = handler(controller, "getUserCacheStats");
+
+        tokenService = app.bean(TokenService.class);
+        adminRequest = new MockHttpServletRequest();
+        adminRequest.addHeader("Authorization", "Bearer " + tokenService.issue(1, SeededApp.username(0), "admin"));
+        userRequest = new MockHttpServletRequest();
+        userRequest.addHeader("Authorization", "Bearer " + tokenService.issue(2, SeededApp.username(1), "employee"));
+        response = new MockHttpServletResponse();
+    }
+
+    //by name only, so changing a handler's parameters doesn't break the benchmark
+    private static HandlerMethod handler(Object controller, String name) {
+        List<Method> matches = Arrays.stream(controller.getClass().getMethods()).filter(m -> m.getName().equals(name)).toList();
+        if (matches.size() != 1) {
+            throw new IllegalStateException("Expected one " + name + " method on " + controller.getClass().getSimpleName() + ", found " + matches.size());
+        }
+        return new HandlerMethod(controller, matches.getFirst());
+    }
+
+    @Benchmark
+    public boolean publicEndpoint() throws Exception {
+        return interceptor.preHandle(fresh(adminRequest), response, publicMethod);
+    }
+
+    @Benchmark
+    public boolean loginRequired() throws Exception {
+        return interceptor.preHandle(fresh(userRequest), response, loginMethod);
+    }
+
+    @Benchmark
+    public boolean adminOnly() throws Exception {
+        return interceptor.preHandle(fresh(adminRequest), response, adminMethod);
+    }
+
+    //just the signature/expiry check on its own
+    @Benchmark
+    public TokenService.Claims verifyToken() {
+        return tokenService.fromRequest(fresh(adminRequest));
+    }
+
+    //forget the token we verified last time, so every call pays for checking it (like a new request would)
+    private static MockHttpServletRequest fresh(MockHttpServletRequest request) {
+        request.removeAttribute(TokenService.CLAIMS_ATTRIBUTE);
+        return request;
+    }
+}
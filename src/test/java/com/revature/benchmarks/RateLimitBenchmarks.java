@@ -0,0 +1,47 @@
+package com.revature.benchmarks;
+
+import com.revature.aspects.TokenBuckets;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*How many rate limit checks (TokenBuckets.tryConsume) we can do a second, from 4 threads at once
+ -manyUsers: 10,000 callers spread over the stripes (the normal case)
+ -oneHotUser: every thread takes from the SAME bucket (worst case for the compareAndSet loop) */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class RateLimitBenchmarks {
+
+    private TokenBuckets buckets;
+
+    @Setup
+    public void setup() {
+        buckets = new TokenBuckets(64, 100_000, System::currentTimeMillis);
+    }
+
+    @Benchmark
+    public long manyUsers() {
+        return buckets.tryConsume(ThreadLocalRandom.current().nextInt(10_000), 100, 6_000);
+    }
+
+    @Benchmark
+    public long oneHotUser() {
+        return buckets.tryConsume(42, 100, 6_000);
+    }
+}
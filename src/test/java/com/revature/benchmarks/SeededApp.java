@@ -0,0 +1,74 @@
+package com.revature.benchmarks;
+
+import com.revature.P1.P1Application;
+import com.revature.models.DTOs.IncomingReimbursementDTO;
+import com.revature.services.ReimbursementService;
+import com.revature.services.UserService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*JMH STATE shared by our benchmarks - the app (on a random port) with an in-memory H2 DB, seeded at a realistic size
+
+ Started once per forked JVM. Change the size with
+ -Djmh.args="-jvmArgsAppend -Dbench.users=5000 -jvmArgsAppend -Dbench.reimbursementsPerUser=200" */
+@State(Scope.Benchmark)
+public class SeededApp {
+
+    public final int users = Integer.getInteger("bench.users", 1000);
+    public final int reimbursementsPerUser = Integer.getInteger("bench.reimbursementsPerUser", 100);
+
+    public ConfigurableApplicationContext ctx;
+
+    @Setup(Level.Trial)
+    public void start() {
+        ctx = new SpringApplicationBuilder(P1Application.class)
+                .properties("logging.level.root=WARN",
+                        "server.port=0",
+                        //a fresh DB for every fork
+                        "spring.datasource.url=jdbc:h2:mem:jmh;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS project1")
+                .run();
+
+        UserService userService = ctx.getBean(UserService.class);
+        ReimbursementService reimbursementService = ctx.getBean(ReimbursementService.class);
+        List<IncomingReimbursementDTO> batch = new ArrayList<>();
+        for (int u = 0; u < users; u++) {
+            userService.registerUser("Bench", "User" + u, username(u), "password", u == 0 ? "admin" : "employee");
+            for (int r = 0; r < reimbursementsPerUser; r++) {
+                batch.add(new IncomingReimbursementDTO("seeded claim " + r, 10 + r, username(u)));
+                if (batch.size() == ReimbursementService.MAX_BATCH_SIZE) {
+                    reimbursementService.addReimbursements(batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            reimbursementService.addReimbursements(batch);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        ctx.close();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return ctx.getBean(type);
+    }
+
+    public static String username(int u) {
+        return "bench" + u;
+    }
+
+    public String randomUsername() {
+        return username(ThreadLocalRandom.current().nextInt(users));
+    }
+}
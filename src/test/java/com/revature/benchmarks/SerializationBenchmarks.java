@@ -0,0 +1,94 @@
+package com.revature.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.revature.config.SparseFields;
+import com.revature.daos.ReimbursementDAO;
+import com.revature.daos.UserDAO;
+import com.revature.daos.UserView;
+import com.revature.models.DTOs.NormalizedReimbursementsDTO;
+import com.revature.models.DTOs.OutgoingReimbursementDTO;
+import com.revature.models.Reimbursement;
+import com.revature.models.User;
+import com.revature.services.ReimbursementService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+//How long Jackson (configured the same way Spring MVC uses it) takes to turn our list responses into JSON
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmarks {
+
+    private ObjectMapper mapper;
+    private List<Reimbursement> reimbursements;
+    private List<User> users;
+    private List<UserView> userViews;
+    private List<OutgoingReimbursementDTO> reimbursementDTOs;
+    private ObjectWriter sparseWriter;
+
+    @Setup
+    public void setup(SeededApp app) {
+        mapper = app.bean(ObjectMapper.class);
+        //one full admin page of reimbursements (each with its User), and every user
+        reimbursements = app.bean(ReimbursementDAO.class)
+                .findByReimbursementIdGreaterThanOrderByReimbursementIdAsc(0, Limit.of(ReimbursementService.MAX_PAGE_SIZE));
+        users = app.bean(UserDAO.class).findAll();
+        userViews = app.bean(UserDAO.class).findAllViews();
+        reimbursementDTOs = reimbursements.stream().map(OutgoingReimbursementDTO::new).toList();
+        //what ?fields=reimbursementId,amount,status does to the writer
+        sparseWriter = mapper.writer(SparseFields.defaults().addFilter(SparseFields.REIMBURSEMENT_FILTER,
+                SimpleBeanPropertyFilter.filterOutAllExcept(Set.of("reimbursementId", "amount", "status"))));
+    }
+
+    @Benchmark
+    public byte[] reimbursementList() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(reimbursements);
+    }
+
+    //the same page as reimbursementList, as the DTOs the endpoints send now
+    @Benchmark
+    public byte[] reimbursementDTOList() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(reimbursementDTOs);
+    }
+
+    //?shape=normalized - each user written once
+    @Benchmark
+    public byte[] normalizedReimbursementList() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(NormalizedReimbursementsDTO.of(reimbursementDTOs, null));
+    }
+
+    //?fields=reimbursementId,amount,status
+    @Benchmark
+    public byte[] sparseReimbursementList() throws JsonProcessingException {
+        return sparseWriter.writeValueAsBytes(reimbursementDTOs);
+    }
+
+    @Benchmark
+    public byte[] userEntityList() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(users);
+    }
+
+    @Benchmark
+    public byte[] userViewList() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(userViews);
+    }
+}
@@ -0,0 +1,80 @@
+package com.revature.benchmarks;
+
+import com.revature.models.DTOs.OutgoingReimbursementDTO;
+import com.revature.models.DTOs.OutgoingUserDTO;
+import com.revature.models.DTOs.ReimbursementPageDTO;
+import com.revature.models.Reimbursement;
+import com.revature.services.ReimbursementService;
+import com.revature.services.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Microbenchmarks of the ReimbursementService and UserService methods our endpoints call
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmarks {
+
+    private ReimbursementService reimbursementService;
+    private UserService userService;
+
+    @Setup
+    public void setup(SeededApp app) {
+        reimbursementService = app.bean(ReimbursementService.class);
+        userService = app.bean(UserService.class);
+    }
+
+    @Benchmark
+    public List<OutgoingReimbursementDTO> getUserReimbursements(SeededApp app) {
+        return reimbursementService.getUserReimbursements(app.randomUsername());
+    }
+
+    @Benchmark
+    public List<OutgoingReimbursementDTO> getPendingUserReimbursements(SeededApp app) {
+        return reimbursementService.getPendingUserReimbursements(app.randomUsername());
+    }
+
+    @Benchmark
+    public long getTotalPendingAmount(SeededApp app) {
+        return reimbursementService.getTotalPendingAmount(app.randomUsername());
+    }
+
+    @Benchmark
+    public ReimbursementPageDTO getReimbursementPage() {
+        return reimbursementService.getReimbursementPage(false, 0, 100);
+    }
+
+    @Benchmark
+    public ReimbursementPageDTO getPendingReimbursementPage() {
+        return reimbursementService.getReimbursementPage(true, 0, 100);
+    }
+
+    @Benchmark
+    public Reimbursement addReimbursement(SeededApp app) {
+        return reimbursementService.addReimbursement("benchmark claim", 42, app.randomUsername());
+    }
+
+    @Benchmark
+    public List<OutgoingUserDTO> getAllUsers() {
+        return userService.getAllUsers();
+    }
+
+    @Benchmark
+    public List<OutgoingUserDTO> searchUsernames() {
+        return userService.getUserByUsernameStartingWith("bench1", 20);
+    }
+}